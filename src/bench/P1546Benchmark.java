@@ -0,0 +1,372 @@
+package bench;
+
+import main.P1546;
+import main.P1546Kernel;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class P1546Benchmark {
+    // JMH benchmarks of the hot paths of P1546, in ns/op; with the GC profiler
+    // (-prof gc, or the main method below) the allocation rate is reported as
+    // gc.alloc.rate.norm in bytes/op.
+    //
+    //   mvn -Pbench package
+    //   java -jar target/benchmarks.jar -prof gc
+
+    private P1546 calculator;
+    private P1546.Workspace ws;
+
+    private P1546.PathZones land;
+    private P1546.PathZones sea;
+    private P1546.PathZones mixed;
+    private P1546.PathZones shortPath;
+
+    private double[] distance;
+    private double[] sweep;
+    private double[] frequency;
+    private double[] Lb;
+    private double[] time;
+    private double[] Lt;
+    private double[] h2;
+    private double[] R2;
+    private P1546.ClutterEnvironment[] area;
+    private double[] Lr;
+    private Links links;
+    private KernelLinks kernelLinks;
+    private P1546Kernel kernelVector;
+    private P1546Kernel kernelScalar;
+    private double d;
+    private double[] out;
+    private double x;
+    private double nu;
+
+    @Setup
+    public void setup() {
+        calculator = new P1546();
+        ws = new P1546.Workspace();
+        land = new P1546.PathZones(new double[]{45}, new String[]{"Land"});
+        sea = new P1546.PathZones(new double[]{45}, new String[]{"Sea"});
+        mixed = new P1546.PathZones(new double[]{20, 35.5, 12}, new String[]{"Land", "Warm", "Land"});
+        shortPath = new P1546.PathZones(new double[]{0.5}, new String[]{"Land"});
+        distance = P1546.tabIndex(2);
+        sweep = new double[200];
+        for (int i = 0; i < sweep.length; i++) {
+            sweep[i] = Math.pow(1000, i / (sweep.length - 1.0));
+        }
+        frequency = new double[40];
+        for (int i = 0; i < frequency.length; i++) {
+            frequency[i] = 470 + 8 * i;   // UHF channel raster
+        }
+        Lb = new double[frequency.length];
+        time = new double[50];
+        for (int i = 0; i < time.length; i++) {
+            time[i] = 1 + i;
+        }
+        Lt = new double[time.length];
+        // rooftop, portable outdoor/indoor, mobile and suburban receivers
+        h2 = new double[]{10, 1.5, 1.5, 1.5, 4};
+        R2 = new double[]{10, 20, 20, 15, 10};
+        area = new P1546.ClutterEnvironment[]{P1546.ClutterEnvironment.RURAL, P1546.ClutterEnvironment.URBAN,
+                P1546.ClutterEnvironment.DENSE_URBAN, P1546.ClutterEnvironment.URBAN, P1546.ClutterEnvironment.SUBURBAN};
+        Lr = new double[h2.length];
+        links = new Links(1000);
+        kernelLinks = new KernelLinks(1000);
+        kernelVector = new P1546Kernel(calculator, true);
+        kernelScalar = new P1546Kernel(calculator, false);
+        d = 123.4;
+        out = new double[4];
+        x = 0.2;
+        nu = 1.5;
+    }
+
+    @Benchmark
+    public double fieldStrLand() {
+        return calculator.P1546FieldStrMixed(900, 50, 150, 10, 10, P1546.ClutterEnvironment.RURAL, land, 0,
+                50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, ws);
+    }
+
+    @Benchmark
+    public double fieldStrSea() {
+        return calculator.P1546FieldStrMixed(900, 10, 150, 10, 10, P1546.ClutterEnvironment.WATER, sea, 0,
+                50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, ws);
+    }
+
+    @Benchmark
+    public double fieldStrMixed() {
+        return calculator.P1546FieldStrMixed(900, 20, 150, 1.5, 15, P1546.ClutterEnvironment.URBAN, mixed, 1,
+                50, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, ws);
+    }
+
+    @Benchmark
+    public double fieldStrShortPath() {
+        // d < 1 km (Step 17)
+        return calculator.P1546FieldStrMixed(600, 50, 60, 10, 15, P1546.ClutterEnvironment.SUBURBAN, shortPath, 0,
+                50, 1, 40, -10000, -1, 91, 10, 20, 91, 91, 0, ws);
+    }
+
+    @Benchmark
+    public double fieldStrLowAntenna() {
+        // h1 < 10 m (Step 8.2)
+        return calculator.P1546FieldStrMixed(600, 50, 5, 10, 15, P1546.ClutterEnvironment.SUBURBAN, land, 0,
+                50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, ws);
+    }
+
+    @Benchmark
+    public double fieldStrLocation() {
+        // q != 50 % (Step 12b, location variability)
+        return calculator.P1546FieldStrMixed(900, 50, 150, 10, 10, P1546.ClutterEnvironment.URBAN, land, 0,
+                90, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 5.5, ws);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public double[] frequencySweep() {
+        // 40 frequencies on a mixed path, in one sweep
+        calculator.P1546FieldStrMixedFrequencySweep(frequency, 20, 150, 1.5, 15, P1546.ClutterEnvironment.URBAN, mixed, 1,
+                50, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, Lb, ws);
+        return Lb;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public double[] frequencyLoop() {
+        // 40 frequencies on a mixed path, one evaluation per frequency
+        for (int i = 0; i < frequency.length; i++) {
+            Lb[i] = calculator.P1546FieldStrMixed(frequency[i], 20, 150, 1.5, 15, P1546.ClutterEnvironment.URBAN, mixed, 1,
+                    50, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, ws);
+        }
+        return Lb;
+    }
+
+    @Benchmark
+    public double[] timeSweep() {
+        // exceedance curve at 1, 2, ..., 50 % on a mixed path, in one sweep
+        calculator.P1546FieldStrMixedTimeSweep(900, time, 150, 1.5, 15, P1546.ClutterEnvironment.URBAN, mixed, 1,
+                50, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, Lt, ws);
+        return Lt;
+    }
+
+    @Benchmark
+    public double[] timeLoop() {
+        // exceedance curve at 1, 2, ..., 50 % on a mixed path, one evaluation per time percentage
+        for (int i = 0; i < time.length; i++) {
+            Lt[i] = calculator.P1546FieldStrMixed(900, time[i], 150, 1.5, 15, P1546.ClutterEnvironment.URBAN, mixed, 1,
+                    50, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, ws);
+        }
+        return Lt;
+    }
+
+    @Benchmark
+    public double[] receiverSweep() {
+        // 5 receiver configurations on a mixed path, in one sweep
+        calculator.P1546FieldStrMixedReceiverSweep(900, 20, 150, h2, R2, area, mixed, 1,
+                50, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, Lr, ws);
+        return Lr;
+    }
+
+    @Benchmark
+    public double[] receiverLoop() {
+        // 5 receiver configurations on a mixed path, one evaluation per configuration
+        for (int i = 0; i < h2.length; i++) {
+            Lr[i] = calculator.P1546FieldStrMixed(900, 20, 150, h2[i], R2[i], area[i], mixed, 1,
+                    50, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, ws);
+        }
+        return Lr;
+    }
+
+    @Benchmark
+    public double[] interferersBatch() {
+        // 1000 land links to one receiver at 50 to 1000 km, all evaluated
+        Links l = links;
+        calculator.P1546FieldStrMixedBatch(l.f, l.t, l.heff, l.h2, l.R2, l.area, l.d_v, l.zone_v, l.zone_x, l.pathinfo,
+                l.q, l.PTx, l.ha, l.hb, l.R1, l.tca, l.htter, l.hrter, l.eff1, l.eff2, l.sigma_L, l.Lb);
+        return l.Lb;
+    }
+
+    @Benchmark
+    public int interferersCulled() {
+        // the same links, culling the ones below 20 dB(uV/m)
+        Links l = links;
+        return calculator.P1546FieldStrMixedBatchCulled(20, l.f, l.t, l.heff, l.h2, l.R2, l.area, l.d_v, l.zone_v, l.zone_x,
+                l.pathinfo, l.q, l.PTx, l.ha, l.hb, l.R1, l.tca, l.htter, l.hrter, l.eff1, l.eff2, l.sigma_L, l.Lb);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public double[] kernelVector() {
+        // Steps 6-10, 19 and 20 and the slope distance of 1000 links, lane-wise
+        return kernel(kernelVector);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public double[] kernelScalar() {
+        // the same, one link at a time
+        return kernel(kernelScalar);
+    }
+
+    private double[] kernel(P1546Kernel kernel) {
+        KernelLinks l = kernelLinks;
+        kernel.Step_19a(l.t, l.dland, l.dsea, l.Emax);
+        kernel.step6_10(l.t, l.f, l.h1, l.path, l.d, l.Emax, l.E);
+        kernel.Step_20a(l.f, l.E, l.Lb);
+        kernel.dslope(l.ha, l.h2, l.d, l.htter, l.hrter, l.ds);
+        return l.Lb;
+    }
+
+    @Benchmark
+    public double step6_10() {
+        return calculator.step6_10(20, 900, 150, 1, d, 1000, ws);
+    }
+
+    @Benchmark
+    public double distanceSweep() {
+        // Steps 6-10 at 200 increasing distances from 1 to 1000 km, bracketed
+        // from the distance cursor of ws
+        double E = 0;
+        for (double x : sweep) {
+            E = E + calculator.step6_10(20, 900, 150, 1, x, 1000, ws);
+        }
+        return E;
+    }
+
+    @Benchmark
+    public double step814_815() {
+        return calculator.step814_815(1, 1, 4, 1, d, ws);
+    }
+
+    @Benchmark
+    public double[] searchclosest() {
+        return calculator.searchclosest(distance, d, out);
+    }
+
+    @Benchmark
+    public double Qi() {
+        return calculator.Qi(x);
+    }
+
+    @Benchmark
+    public double J() {
+        return calculator.J(nu);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(P1546Benchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    private static final class Links {
+        // n land links of 50 to 1000 km (log-uniform) from 100 kW transmitters
+        // at 600 MHz, as arrays of P1546FieldStrMixedBatch
+        final double[] f, t, heff, h2, R2, d_v, q, PTx, ha, hb, R1, tca, htter, hrter, eff1, eff2, sigma_L, Lb;
+        final P1546.ClutterEnvironment[] area;
+        final byte[] zone_v;
+        final int[] zone_x, pathinfo;
+
+        Links(int n) {
+            f = fill(n, 600);
+            t = fill(n, 50);
+            heff = new double[n];
+            h2 = fill(n, 10);
+            R2 = fill(n, 10);
+            area = new P1546.ClutterEnvironment[n];
+            d_v = new double[n];
+            zone_v = new byte[n];
+            zone_x = new int[n + 1];
+            pathinfo = new int[n];
+            q = fill(n, 50);
+            PTx = fill(n, 100);
+            ha = new double[n];
+            hb = fill(n, -10000);
+            R1 = fill(n, -1);
+            tca = fill(n, 91);
+            htter = new double[n];
+            hrter = new double[n];
+            eff1 = fill(n, 91);
+            eff2 = fill(n, 91);
+            sigma_L = new double[n];
+            Lb = new double[n];
+            Random random = new Random(1);
+            for (int i = 0; i < n; i++) {
+                heff[i] = 30 + 270 * random.nextDouble();
+                ha[i] = heff[i];
+                area[i] = P1546.ClutterEnvironment.RURAL;
+                d_v[i] = 50 * Math.pow(20, random.nextDouble());
+                zone_v[i] = P1546.LAND;
+                zone_x[i + 1] = i + 1;
+            }
+        }
+
+        private static double[] fill(int n, double v) {
+            double[] x = new double[n];
+            Arrays.fill(x, v);
+            return x;
+        }
+    }
+
+    private static final class KernelLinks {
+        // n links of 1 to 1000 km (log-uniform) at 100 to 2000 MHz, 1 to 50 %
+        // and 10 to 1200 m, over land, warm or cold sea, as arrays of P1546Kernel
+        final double[] t, f, h1, d, dland, dsea, Emax, E, Lb, ha, h2, htter, hrter, ds;
+        final byte[] path;
+
+        KernelLinks(int n) {
+            t = new double[n];
+            f = new double[n];
+            h1 = new double[n];
+            d = new double[n];
+            dland = new double[n];
+            dsea = new double[n];
+            Emax = new double[n];
+            E = new double[n];
+            Lb = new double[n];
+            ha = new double[n];
+            h2 = new double[n];
+            htter = new double[n];
+            hrter = new double[n];
+            ds = new double[n];
+            path = new byte[n];
+            Random random = new Random(2);
+            for (int i = 0; i < n; i++) {
+                t[i] = 1 + 49 * random.nextDouble();
+                f[i] = 100 * Math.pow(20, random.nextDouble());
+                h1[i] = 10 * Math.pow(120, random.nextDouble());
+                d[i] = Math.pow(1000, random.nextDouble());
+                path[i] = (byte) (1 + random.nextInt(3));
+                dland[i] = path[i] == P1546.LAND ? d[i] : 0;
+                dsea[i] = d[i] - dland[i];
+                ha[i] = h1[i];
+                h2[i] = 10;
+                htter[i] = 500 * random.nextDouble();
+                hrter[i] = 500 * random.nextDouble();
+            }
+        }
+    }
+}
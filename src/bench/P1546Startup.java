@@ -0,0 +1,28 @@
+package bench;
+
+import main.P1546;
+
+import java.lang.management.ManagementFactory;
+
+public class P1546Startup {
+    // Startup benchmark: time to the first result of P1546FieldStrMixed in a
+    // fresh JVM, including the loading and initialization of the class P1546
+    // and of its field-strength tables. Run it in a new JVM for each sample:
+    //
+    //   java -cp <classes> bench.P1546Startup
+
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+
+        P1546 calculator = new P1546();
+        double Lb = calculator.P1546FieldStrMixed(900, 50, 150, 10, 10, P1546.ClutterEnvironment.RURAL,
+                new double[]{20}, new String[]{"Land"}, 0, 50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0);
+
+        long first = System.nanoTime() - start;
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+
+        System.out.printf("Lb = %.4f dB%n", Lb);
+        System.out.printf("time to first result: %.3f ms%n", first / 1e6);
+        System.out.printf("JVM uptime at first result: %d ms%n", uptime);
+    }
+}
@@ -0,0 +1,123 @@
+package main;
+
+// Great-circle geometry on a spherical Earth
+
+public final class GreatCircle {
+    //
+    // Distances, bearings and intermediate points on great circles of a
+    // sphere of radius R = 6371 km. Latitudes and longitudes are given in
+    // degrees (north and east positive), bearings in degrees clockwise from
+    // north and distances in km.
+
+    public static final double R = 6371.0;
+
+    private GreatCircle() {
+    }
+
+    public static double distance(double lat1, double lon1, double lat2, double lon2) {
+        // great-circle distance (haversine formula)
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double sdphi = Math.sin((phi2 - phi1) / 2);
+        double sdlambda = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sdphi * sdphi + Math.cos(phi1) * Math.cos(phi2) * sdlambda * sdlambda;
+        return 2 * R * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    public static double bearing(double lat1, double lon1, double lat2, double lon2) {
+        // initial bearing from point 1 towards point 2, 0 - 360 deg
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double dlambda = Math.toRadians(lon2 - lon1);
+        double y = Math.sin(dlambda) * Math.cos(phi2);
+        double x = Math.cos(phi1) * Math.sin(phi2) - Math.sin(phi1) * Math.cos(phi2) * Math.cos(dlambda);
+        double theta = Math.toDegrees(Math.atan2(y, x));
+        return (theta + 360) % 360;
+    }
+
+    public static double[] destination(double lat, double lon, double bearing, double d, double[] out) {
+        // point at distance d from (lat, lon) along the initial bearing,
+        // returned in out = [lat, lon] with lon in -180 - 180 deg
+        double phi1 = Math.toRadians(lat);
+        double lambda1 = Math.toRadians(lon);
+        double theta = Math.toRadians(bearing);
+        double delta = d / R;
+        double sphi2 = Math.sin(phi1) * Math.cos(delta) + Math.cos(phi1) * Math.sin(delta) * Math.cos(theta);
+        double phi2 = Math.asin(Math.max(-1, Math.min(1, sphi2)));
+        double lambda2 = lambda1 + Math.atan2(Math.sin(theta) * Math.sin(delta) * Math.cos(phi1),
+                Math.cos(delta) - Math.sin(phi1) * sphi2);
+        out[0] = Math.toDegrees(phi2);
+        out[1] = normalizeLongitude(Math.toDegrees(lambda2));
+        return out;
+    }
+
+    public static double normalizeLongitude(double lon) {
+        // longitude in -180 - 180 deg
+        double x = (lon + 180) % 360;
+        if (x < 0) {
+            x = x + 360;
+        }
+        return x - 180;
+    }
+
+    public static final class Path {
+        // Points along the great circle from (lat1, lon1) in the direction of
+        // (lat2, lon2), including points beyond (lat2, lon2), or along a given
+        // initial bearing. The path is precomputed as two orthogonal unit
+        // vectors so that each point costs one sine and one cosine of the
+        // distance.
+
+        private double d;
+        private final double ax, ay, az;   // unit vector of the start point
+        private final double bx, by, bz;   // unit tangent vector at the start point
+
+        public Path(double lat1, double lon1, double lat2, double lon2) {
+            this(lat1, lon1, bearing(lat1, lon1, lat2, lon2));
+            this.d = distance(lat1, lon1, lat2, lon2);
+        }
+
+        public Path(double lat1, double lon1, double bearing) {
+            // path along the initial bearing (deg), without an end point
+            this.d = Double.NaN;
+            double phi = Math.toRadians(lat1);
+            double lambda = Math.toRadians(lon1);
+            double theta = Math.toRadians(bearing);
+            double cphi = Math.cos(phi);
+            double sphi = Math.sin(phi);
+            double clambda = Math.cos(lambda);
+            double slambda = Math.sin(lambda);
+            ax = cphi * clambda;
+            ay = cphi * slambda;
+            az = sphi;
+            // north and east unit vectors at the start point
+            double nx = -sphi * clambda;
+            double ny = -sphi * slambda;
+            double nz = cphi;
+            double ex = -slambda;
+            double ey = clambda;
+            double ct = Math.cos(theta);
+            double st = Math.sin(theta);
+            bx = ct * nx + st * ex;
+            by = ct * ny + st * ey;
+            bz = ct * nz;
+        }
+
+        public double getDistance() {
+            // distance to the end point (km), NaN for a path along a bearing
+            return d;
+        }
+
+        public double[] point(double x, double[] out) {
+            // point at the distance x from the start point, out = [lat, lon]
+            double delta = x / R;
+            double c = Math.cos(delta);
+            double s = Math.sin(delta);
+            double px = c * ax + s * bx;
+            double py = c * ay + s * by;
+            double pz = c * az + s * bz;
+            out[0] = Math.toDegrees(Math.atan2(pz, Math.sqrt(px * px + py * py)));
+            out[1] = Math.toDegrees(Math.atan2(py, px));
+            return out;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package main;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Recommendation ITU-R P.1546
+
+public final class P1546Cache {
+    //
+    // Thread-safe, size-bounded cache of the field strengths of Steps 6-10
+    // (P1546.step6_10) used by P1546FieldStrMixed of a calculator constructed
+    // with new P1546(cache).
+    //
+    // The entries are keyed by (t, f, h1, path, d). Each of t, f, h1 and d
+    // may be rounded to the closest multiple of a given step (0 keeps the
+    // exact value), kept within 1-50 % for t, above 30 MHz for f and above
+    // 1 km for d; the field strength is then evaluated at the rounded values
+    // so that all the links sharing a key get the same result.
+    //
+    // The maximum field strength Emax depends on the whole path and is not
+    // part of the key: an entry holds the field strength without Emax
+    // limiting together with the largest value limited by Emax in Steps 7-9.
+    // When that value does not exceed Emax, the limiting has no effect and the
+    // cached field strength is returned, otherwise Steps 6-10 are followed for
+    // that Emax. Without quantisation, the results are therefore identical to
+    // the ones obtained without the cache.
+    //
+    // The entries are distributed over independently locked segments, each
+    // evicting its least recently used (LRU) or least frequently used (LFU)
+    // entries once it is full.
+
+    public enum Eviction {
+        LRU,
+        LFU
+    }
+
+    private static final int SEGMENTS = 16;
+    private static final int LFU_SAMPLE = 8;   // oldest entries compared when evicting the least frequently used
+
+    private final Segment[] segments;
+    private final int capacity;
+    private final Eviction eviction;
+    private final double tStep;
+    private final double fStep;
+    private final double h1Step;
+    private final double dStep;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public P1546Cache(int capacity) {
+        this(capacity, Eviction.LRU, 0, 0, 0, 0);
+    }
+
+    public P1546Cache(int capacity, Eviction eviction, double tStep, double fStep, double h1Step, double dStep) {
+        // capacity: maximum number of entries
+        // eviction: LRU or LFU
+        // tStep, fStep, h1Step, dStep: quantisation steps of the key (0 - exact)
+        if (capacity < 1) {
+            throw new RuntimeException("The cache capacity must be positive.");
+        }
+        if (eviction == null) {
+            throw new RuntimeException("The eviction policy must be defined.");
+        }
+        if (!(tStep >= 0 && fStep >= 0 && h1Step >= 0 && dStep >= 0)) {
+            throw new RuntimeException("The quantisation steps must be non-negative.");
+        }
+        this.capacity = capacity;
+        this.eviction = eviction;
+        this.tStep = tStep;
+        this.fStep = fStep;
+        this.h1Step = h1Step;
+        this.dStep = dStep;
+
+        int n = Math.min(SEGMENTS, capacity);
+        segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment(capacity / n + (i < capacity % n ? 1 : 0), eviction == Eviction.LRU);
+        }
+    }
+
+    public double step6_10(P1546 p, double t, double f, double h1, int path, double d, double Emax, P1546.Workspace ws) {
+        // E = cache.step6_10(p, t, f, h1, path, d, Emax, ws)
+        // same as p.step6_10(t, f, h1, path, d, Emax, ws) at the quantised
+        // values of t, f, h1 and d
+        Key key = new Key(quantise(t, tStep, Math.min(t, 1), Math.max(t, 50)),
+                quantise(f, fStep, Math.min(f, 30), Double.POSITIVE_INFINITY),
+                quantise(h1, h1Step, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY), path,
+                quantise(d, dStep, Math.min(d, 1), Double.POSITIVE_INFINITY));
+        Segment segment = segments[(key.hashCode() & 0x7fffffff) % segments.length];
+
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+            if (entry != null) {
+                entry.uses++;
+            }
+        }
+        if (entry != null) {
+            if (entry.Ecap <= Emax) {
+                hits.increment();
+                return entry.E;
+            }
+            // the cached field strength would have to be limited to Emax
+            misses.increment();
+            return p.step6_10(key.t, key.f, key.h1, path, key.d, Emax, ws);
+        }
+
+        misses.increment();
+        ws.Ecap = Double.NEGATIVE_INFINITY;
+        double E = p.step6_10(key.t, key.f, key.h1, path, key.d, Double.POSITIVE_INFINITY, ws);
+        entry = new Entry(E, ws.Ecap);
+        synchronized (segment) {
+            if (segment.putIfAbsent(key, entry) == null && segment.size() > segment.capacity) {
+                segment.evict(key);
+                evictions.increment();
+            }
+        }
+        if (entry.Ecap <= Emax) {
+            return E;
+        }
+        return p.step6_10(key.t, key.f, key.h1, path, key.d, Emax, ws);
+    }
+
+    private static double quantise(double x, double step, double min, double max) {
+        // rounds x to the closest multiple of step within [min, max]
+        if (step == 0) {
+            return x;
+        }
+        return Math.min(Math.max(Math.rint(x / step) * step, min), max);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Eviction getEviction() {
+        return eviction;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int n = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                n += segment.size();
+            }
+        }
+        return n;
+    }
+
+    public void clear() {
+        // removes all the entries and resets the counters
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    private static final class Key {
+        final double t;
+        final double f;
+        final double h1;
+        final int path;
+        final double d;
+        private final int hash;
+
+        Key(double t, double f, double h1, int path, double d) {
+            this.t = t;
+            this.f = f;
+            this.h1 = h1;
+            this.path = path;
+            this.d = d;
+            int h = Double.hashCode(t);
+            h = 31 * h + Double.hashCode(f);
+            h = 31 * h + Double.hashCode(h1);
+            h = 31 * h + path;
+            h = 31 * h + Double.hashCode(d);
+            this.hash = h ^ (h >>> 16);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return Double.compare(t, k.t) == 0 && Double.compare(f, k.f) == 0 && Double.compare(h1, k.h1) == 0
+                    && path == k.path && Double.compare(d, k.d) == 0;
+        }
+    }
+
+    private static final class Entry {
+        final double E;       // Steps 6-10 without Emax limiting
+        final double Ecap;    // largest value limited by Emax in Steps 7-9
+        int uses;             // guarded by the segment
+
+        Entry(double E, double Ecap) {
+            this.E = E;
+            this.Ecap = Ecap;
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<Key, Entry> {
+        // LRU: access-ordered map, the eldest entry is the least recently used
+        // LFU: insertion-ordered map, the least used of the oldest entries is evicted
+        private static final long serialVersionUID = 1L;
+        final int capacity;
+        private final boolean lru;
+
+        Segment(int capacity, boolean lru) {
+            super(16, 0.75f, lru);
+            this.capacity = capacity;
+            this.lru = lru;
+        }
+
+        void evict(Key added) {
+            Iterator<Map.Entry<Key, Entry>> it = entrySet().iterator();
+            if (lru) {
+                it.next();
+                it.remove();
+                return;
+            }
+            Key victim = null;
+            int uses = Integer.MAX_VALUE;
+            for (int i = 0; i < LFU_SAMPLE && it.hasNext(); i++) {
+                Map.Entry<Key, Entry> e = it.next();
+                if (e.getKey() != added && e.getValue().uses < uses) {
+                    victim = e.getKey();
+                    uses = e.getValue().uses;
+                }
+            }
+            remove(victim);
+        }
+    }
+}
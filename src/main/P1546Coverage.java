@@ -0,0 +1,296 @@
+package main;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Recommendation ITU-R P.1546
+
+public final class P1546Coverage {
+    //
+    // Coverage engine: basic transmission loss (and optionally field strength)
+    // from one transmitter to all the cells of a receiver grid, computed in
+    // parallel.
+    //
+    // The grid is divided into square tiles of tileSize x tileSize cells. The
+    // range of tiles is split in halves by fork/join tasks until one tile is
+    // left, so that idle workers steal the larger halves and the work stays
+    // balanced when the cost per cell varies (mixed paths, short distances).
+    // Each tile is evaluated with its own P1546.Workspace and writes into its
+    // own cells of the output array, without any locking.
+    //
+    // Steps 6-10 use the transmitter curves (see P1546.TransmitterCurves)
+    // computed once for the transmitter, except for the cells closer than
+    // 15 km with terrain information and hb, for which h1 = hb (equ'n (6)).
+
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    private final P1546 calculator;
+    private final ForkJoinPool pool;
+    private final int tileSize;
+
+    public P1546Coverage(P1546 calculator) {
+        this(calculator, ForkJoinPool.commonPool(), DEFAULT_TILE_SIZE);
+    }
+
+    public P1546Coverage(P1546 calculator, ForkJoinPool pool, int tileSize) {
+        if (calculator == null || pool == null) {
+            throw new RuntimeException("The calculator and the pool must be defined.");
+        }
+        if (tileSize < 1) {
+            throw new RuntimeException("The tile size must be positive.");
+        }
+        this.calculator = calculator;
+        this.pool = pool;
+        this.tileSize = tileSize;
+    }
+
+    public static final class Transmitter {
+        // Transmitter/base station and the parameters common to all the cells
+        // (see P1546FieldStrMixed):
+        //
+        // f:        MHz     Required frequency
+        // t:        %       Required percentage time
+        // heff:     m       Effective height of the transmitting/base antenna
+        // pathinfo: 0/1     0 - no terrain profile information available,
+        //                   1 - terrain information available
+        // q:        %       Location variability (default 50%)
+        // PTx:      kW      Transmitter (e.r.p) power in kW (default 1 kW)
+        // ha:       m       Transmitter antenna height above ground
+        // R1:       m       Representative clutter height around transmitter (-1 if not available)
+        // htter:    m       Terrain height at the transmitter site
+        // sigma_L:  dB      Location variability standard deviation
+
+        final double f;
+        final double t;
+        final double heff;
+        final int pathinfo;
+        final double q;
+        final double PTx;
+        final double ha;
+        final double R1;
+        final double htter;
+        final double sigma_L;
+
+        public Transmitter(double f, double t, double heff, int pathinfo, double q, double PTx, double ha,
+                           double R1, double htter, double sigma_L) {
+            this.f = f;
+            this.t = t;
+            this.heff = heff;
+            this.pathinfo = pathinfo;
+            this.q = q;
+            this.PTx = PTx;
+            this.ha = ha;
+            this.R1 = R1;
+            this.htter = htter;
+            this.sigma_L = sigma_L;
+        }
+    }
+
+    public static final class ReceiverGrid {
+        // Georeferenced grid of nx x ny receivers. Cell (row, col) is centred at
+        // (x0 + col*dx, y0 + row*dy) in the coordinates of the grid and is stored
+        // at index row*nx + col of all the per-cell arrays:
+        //
+        // path:     Path zones from the transmitter to the cell (distance and
+        //           zone types), or null for a cell without a result (NaN)
+        // h2:       m       Receiver antenna height above ground
+        // R2:       m       Representative clutter height around receiver
+        // area:             Receiver clutter environment
+        // tca:      deg     Terrain clearance angle (>= 90 if not available)
+        // hb:       m       Height of the transmitter/base antenna above the
+        //                   terrain height averaged between 0.2 d and d, used
+        //                   as h1 (equ'n (6)) for the land and mixed paths
+        //                   shorter than 15 km with pathinfo = 1, or null if
+        //                   not available (-10000)
+        // hrter:    m       Terrain height at the receiver site, or null for 0
+        // eff1:     deg     Transmitter effective clearance angle, or null if not available
+        // eff2:     deg     Receiver effective clearance angle, or null if not available
+
+        final int nx;
+        final int ny;
+        final double x0;
+        final double y0;
+        final double dx;
+        final double dy;
+        final P1546.PathZones[] path;
+        final double[] h2;
+        final double[] R2;
+        final P1546.ClutterEnvironment[] area;
+        final double[] tca;
+        final double[] hb;
+        final double[] hrter;
+        final double[] eff1;
+        final double[] eff2;
+
+        public ReceiverGrid(int nx, int ny, double x0, double y0, double dx, double dy, P1546.PathZones[] path,
+                            double[] h2, double[] R2, P1546.ClutterEnvironment[] area, double[] tca) {
+            this(nx, ny, x0, y0, dx, dy, path, h2, R2, area, tca, null, null, null, null);
+        }
+
+        public ReceiverGrid(int nx, int ny, double x0, double y0, double dx, double dy, P1546.PathZones[] path,
+                            double[] h2, double[] R2, P1546.ClutterEnvironment[] area, double[] tca,
+                            double[] hb, double[] hrter, double[] eff1, double[] eff2) {
+            if (nx < 1 || ny < 1) {
+                throw new RuntimeException("The grid must have at least one cell.");
+            }
+            int n = nx * ny;
+            if (path == null || path.length != n || area == null || area.length != n) {
+                throw new RuntimeException("Input arrays path and area must have nx*ny elements.");
+            }
+            checkLength(h2, n, "h2", false);
+            checkLength(R2, n, "R2", false);
+            checkLength(tca, n, "tca", false);
+            checkLength(hb, n, "hb", true);
+            checkLength(hrter, n, "hrter", true);
+            checkLength(eff1, n, "eff1", true);
+            checkLength(eff2, n, "eff2", true);
+
+            this.nx = nx;
+            this.ny = ny;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.dx = dx;
+            this.dy = dy;
+            this.path = path;
+            this.h2 = h2;
+            this.R2 = R2;
+            this.area = area;
+            this.tca = tca;
+            this.hb = hb;
+            this.hrter = hrter;
+            this.eff1 = eff1;
+            this.eff2 = eff2;
+        }
+
+        private static void checkLength(double[] var, int n, String name, boolean optional) {
+            if (var == null ? !optional : var.length != n) {
+                throw new RuntimeException("Input array " + name + " must have nx*ny elements.");
+            }
+        }
+
+        public int getColumnCount() {
+            return nx;
+        }
+
+        public int getRowCount() {
+            return ny;
+        }
+
+        public double getX(int col) {
+            return x0 + col * dx;
+        }
+
+        public double getY(int row) {
+            return y0 + row * dy;
+        }
+    }
+
+    public void compute(Transmitter tx, ReceiverGrid grid, double[] Lb) {
+        // compute(tx, grid, Lb)
+        // Fills Lb (nx*ny elements, row-major as the grid) with the basic
+        // transmission loss from the transmitter tx to each cell of the grid.
+        // Cells without path zones get NaN.
+        compute(tx, grid, Lb, null);
+    }
+
+    public void compute(Transmitter tx, ReceiverGrid grid, double[] Lb, double[] E) {
+        // compute(tx, grid, Lb, E)
+        // Same as above, also filling E (nx*ny elements, or null) with the
+        // field strength (dB(uV/m)) for the e.r.p. PTx of the transmitter
+        int n = grid.nx * grid.ny;
+        if (Lb == null || Lb.length != n) {
+            throw new RuntimeException("Output array Lb must have nx*ny elements.");
+        }
+        if (E != null && E.length != n) {
+            throw new RuntimeException("Output array E must have nx*ny elements.");
+        }
+        P1546.TransmitterCurves tc = calculator.transmitterCurves(tx.f, tx.t, tx.heff);
+        int tilesX = (grid.nx + tileSize - 1) / tileSize;
+        int tilesY = (grid.ny + tileSize - 1) / tileSize;
+        pool.invoke(new Tiles(tc, tx, grid, Lb, E, tilesX, 0, tilesX * tilesY));
+    }
+
+    private final class Tiles extends RecursiveAction {
+        // tiles from..to-1, numbered row-major over the tilesX columns of tiles
+        private static final long serialVersionUID = 1L;
+        private final P1546.TransmitterCurves tc;
+        private final Transmitter tx;
+        private final ReceiverGrid grid;
+        private final double[] Lb;
+        private final double[] E;
+        private final int tilesX;
+        private final int from;
+        private final int to;
+
+        Tiles(P1546.TransmitterCurves tc, Transmitter tx, ReceiverGrid grid, double[] Lb, double[] E, int tilesX,
+              int from, int to) {
+            this.tc = tc;
+            this.tx = tx;
+            this.grid = grid;
+            this.Lb = Lb;
+            this.E = E;
+            this.tilesX = tilesX;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Tiles(tc, tx, grid, Lb, E, tilesX, from, mid), new Tiles(tc, tx, grid, Lb, E, tilesX, mid, to));
+                return;
+            }
+            int row0 = (from / tilesX) * tileSize;
+            int col0 = (from % tilesX) * tileSize;
+            int row1 = Math.min(row0 + tileSize, grid.ny);
+            int col1 = Math.min(col0 + tileSize, grid.nx);
+            P1546.Workspace ws = new P1546.Workspace();
+            P1546.Result res = E == null ? null : new P1546.Result();
+            for (int row = row0; row < row1; row++) {
+                for (int i = row * grid.nx + col0; i < row * grid.nx + col1; i++) {
+                    cell(tc, tx, grid, i, Lb, E, res, ws);
+                }
+            }
+        }
+    }
+
+    private void cell(P1546.TransmitterCurves tc, Transmitter tx, ReceiverGrid grid, int i, double[] Lb, double[] E,
+                      P1546.Result res, P1546.Workspace ws) {
+        P1546.PathZones path = grid.path[i];
+        if (path == null) {
+            Lb[i] = Double.NaN;
+            if (E != null) {
+                E[i] = Double.NaN;
+            }
+            return;
+        }
+        double hb = grid.hb == null ? -10000 : grid.hb[i];
+        double hrter = grid.hrter == null ? 0 : grid.hrter[i];
+        double eff1 = grid.eff1 == null ? 91 : grid.eff1[i];
+        double eff2 = grid.eff2 == null ? 91 : grid.eff2[i];
+        double heff = P1546.heff(tx.heff, hb, tx.pathinfo, path);
+        if (heff != tx.heff) {
+            // h1 = hb of the cell (equ'n (6)) instead of the curves for tx.heff
+            if (E == null) {
+                Lb[i] = calculator.P1546FieldStrMixed(tx.f, tx.t, heff, grid.h2[i], grid.R2[i], grid.area[i], path,
+                        tx.pathinfo, tx.q, tx.PTx, tx.ha, hb, tx.R1, grid.tca[i], tx.htter, hrter, eff1, eff2, tx.sigma_L, ws);
+                return;
+            }
+            calculator.P1546FieldStrMixedResult(tx.f, tx.t, heff, grid.h2[i], grid.R2[i], grid.area[i], path, tx.pathinfo,
+                    tx.q, tx.PTx, tx.ha, hb, tx.R1, grid.tca[i], tx.htter, hrter, eff1, eff2, tx.sigma_L, res, ws);
+            Lb[i] = res.getLoss();
+            E[i] = res.getFieldStrengthPTx();
+            return;
+        }
+        if (E == null) {
+            Lb[i] = calculator.P1546FieldStrMixed(tc, grid.h2[i], grid.R2[i], grid.area[i], path, tx.pathinfo, tx.q, tx.PTx,
+                    tx.ha, hb, tx.R1, grid.tca[i], tx.htter, hrter, eff1, eff2, tx.sigma_L, ws);
+            return;
+        }
+        calculator.P1546FieldStrMixedResult(tc, grid.h2[i], grid.R2[i], grid.area[i], path, tx.pathinfo, tx.q, tx.PTx,
+                tx.ha, hb, tx.R1, grid.tca[i], tx.htter, hrter, eff1, eff2, tx.sigma_L, res, ws);
+        Lb[i] = res.getLoss();
+        E[i] = res.getFieldStrengthPTx();
+    }
+}
@@ -0,0 +1,251 @@
+package main;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Recommendation ITU-R P.1546
+
+final class P1546Events {
+    //
+    // Java Flight Recorder events around the step groups of P1546FieldStrMixed:
+    //
+    //   p1546.CurveInterpolation:  Steps 5-10, field strength of each propagation type
+    //   p1546.MixedPath:           Step 11, Step_11a_rrc06
+    //   p1546.Troposcatter:        Step 13, Step_13a
+    //   p1546.ReceiverHeight:      Step 14, Step_14a
+    //   p1546.ShortPath:           Step 17, Step_17a
+    //
+    // The events are disabled by default and have to be enabled in the
+    // recording settings (a .jfc file given to -XX:StartFlightRecording) or
+    // with Recording.enable("p1546.CurveInterpolation"). While an event is
+    // disabled, its step group only checks EventType.isEnabled() and no
+    // event object is allocated: the methods below return null in that case.
+
+    private static final EventType CURVES = EventType.getEventType(CurveInterpolation.class);
+    private static final EventType MIXED = EventType.getEventType(MixedPath.class);
+    private static final EventType TROPO = EventType.getEventType(Troposcatter.class);
+    private static final EventType RECEIVER = EventType.getEventType(ReceiverHeight.class);
+    private static final EventType SHORT = EventType.getEventType(ShortPath.class);
+
+    private P1546Events() {
+    }
+
+    static CurveInterpolation curveInterpolation() {
+        if (!CURVES.isEnabled()) {
+            return null;
+        }
+        CurveInterpolation event = new CurveInterpolation();
+        event.begin();
+        return event;
+    }
+
+    static MixedPath mixedPath() {
+        if (!MIXED.isEnabled()) {
+            return null;
+        }
+        MixedPath event = new MixedPath();
+        event.begin();
+        return event;
+    }
+
+    static Troposcatter troposcatter() {
+        if (!TROPO.isEnabled()) {
+            return null;
+        }
+        Troposcatter event = new Troposcatter();
+        event.begin();
+        return event;
+    }
+
+    static ReceiverHeight receiverHeight() {
+        if (!RECEIVER.isEnabled()) {
+            return null;
+        }
+        ReceiverHeight event = new ReceiverHeight();
+        event.begin();
+        return event;
+    }
+
+    static ShortPath shortPath() {
+        if (!SHORT.isEnabled()) {
+            return null;
+        }
+        ShortPath event = new ShortPath();
+        event.begin();
+        return event;
+    }
+
+    @Name("p1546.CurveInterpolation")
+    @Label("P1546 Curve Interpolation")
+    @Description("Steps 5-10: field strength of each propagation type of the path")
+    @Category({"ITU-R P.1546"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class CurveInterpolation extends Event {
+        @Label("Frequency (MHz)")
+        double f;
+        @Label("Time Percentage (%)")
+        double t;
+        @Label("Transmitting Antenna Height h1 (m)")
+        double h1;
+        @Label("Distance (km)")
+        double d;
+        @Label("Path Zones")
+        int zones;
+        @Label("Propagation Types")
+        int types;
+        @Label("Maximum Field Strength (dB(uV/m))")
+        double Emax;
+        @Label("Transmitter Curves")
+        boolean curves;
+        @Label("Frequency Tables")
+        boolean tables;
+
+        void complete(double f, double t, double h1, double d, int zones, int types, double Emax, boolean curves,
+                      boolean tables) {
+            this.f = f;
+            this.t = t;
+            this.h1 = h1;
+            this.d = d;
+            this.zones = zones;
+            this.types = types;
+            this.Emax = Emax;
+            this.curves = curves;
+            this.tables = tables;
+            commit();
+        }
+    }
+
+    @Name("p1546.MixedPath")
+    @Label("P1546 Mixed Path")
+    @Description("Step 11: field strength of the mixed path (Step_11a_rrc06)")
+    @Category({"ITU-R P.1546"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class MixedPath extends Event {
+        @Label("Land Zones")
+        int nl;
+        @Label("Sea Zones")
+        int ns;
+        @Label("Land Distance (km)")
+        double dland;
+        @Label("Sea Distance (km)")
+        double dsea;
+        @Label("Field Strength (dB(uV/m))")
+        double E;
+
+        void complete(int nl, int ns, double dland, double dsea, double E) {
+            this.nl = nl;
+            this.ns = ns;
+            this.dland = dland;
+            this.dsea = dsea;
+            this.E = E;
+            commit();
+        }
+    }
+
+    @Name("p1546.Troposcatter")
+    @Label("P1546 Troposcatter")
+    @Description("Step 13: tropospheric scattering field strength (Step_13a)")
+    @Category({"ITU-R P.1546"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Troposcatter extends Event {
+        @Label("Distance (km)")
+        double d;
+        @Label("Frequency (MHz)")
+        double f;
+        @Label("Time Percentage (%)")
+        double t;
+        @Label("Transmitter Horizon Elevation Angle (deg)")
+        double eff1;
+        @Label("Receiver Horizon Elevation Angle (deg)")
+        double eff2;
+        @Label("Troposcatter Field Strength (dB(uV/m))")
+        double Ets;
+
+        void complete(double d, double f, double t, double eff1, double eff2, double Ets) {
+            this.d = d;
+            this.f = f;
+            this.t = t;
+            this.eff1 = eff1;
+            this.eff2 = eff2;
+            this.Ets = Ets;
+            commit();
+        }
+    }
+
+    @Name("p1546.ReceiverHeight")
+    @Label("P1546 Receiver Height")
+    @Description("Step 14: receiving/mobile antenna height correction (Step_14a)")
+    @Category({"ITU-R P.1546"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ReceiverHeight extends Event {
+        @Label("Transmitting Antenna Height h1 (m)")
+        double h1;
+        @Label("Distance (km)")
+        double d;
+        @Label("Receiver Clutter Height R2 (m)")
+        double R2;
+        @Label("Receiving Antenna Height h2 (m)")
+        double h2;
+        @Label("Frequency (MHz)")
+        double f;
+        @Label("Receiver Clutter Environment")
+        String area;
+        @Label("Correction (dB)")
+        double correction;
+
+        void complete(double h1, double d, double R2, double h2, double f, P1546.ClutterEnvironment area, double correction) {
+            this.h1 = h1;
+            this.d = d;
+            this.R2 = R2;
+            this.h2 = h2;
+            this.f = f;
+            this.area = area == null ? null : area.name();
+            this.correction = correction;
+            commit();
+        }
+    }
+
+    @Name("p1546.ShortPath")
+    @Label("P1546 Short Path")
+    @Description("Step 17: field strength of paths shorter than 1 km (Step_17a)")
+    @Category({"ITU-R P.1546"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ShortPath extends Event {
+        @Label("Transmitting Antenna Height ha (m)")
+        double ha;
+        @Label("Receiving Antenna Height h2 (m)")
+        double h2;
+        @Label("Distance (km)")
+        double d;
+        @Label("Transmitter Terrain Height (m)")
+        double htter;
+        @Label("Receiver Terrain Height (m)")
+        double hrter;
+        @Label("Field Strength at 1 km (dB(uV/m))")
+        double E1;
+        @Label("Field Strength (dB(uV/m))")
+        double E;
+
+        void complete(double ha, double h2, double d, double htter, double hrter, double E1, double E) {
+            this.ha = ha;
+            this.h2 = h2;
+            this.d = d;
+            this.htter = htter;
+            this.hrter = hrter;
+            this.E1 = E1;
+            this.E = E;
+            commit();
+        }
+    }
+}
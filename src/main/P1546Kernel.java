@@ -0,0 +1,200 @@
+package main;
+
+// Recommendation ITU-R P.1546
+
+public final class P1546Kernel {
+    //
+    // Batch kernels of the stages of P1546FieldStrMixed which are simple
+    // arithmetic over independent links, each one given as arrays with one
+    // element per link (structure of arrays):
+    //
+    //   step6_10:  Steps 6-10 (step7_normal, step81, step814_815): field
+    //              strength interpolated in time percentage, frequency,
+    //              transmitting/base antenna height and distance
+    //   Step_19a:  maximum field strength
+    //   Step_20a:  basic transmission loss
+    //   dslope:    slope distance of Step 16
+    //
+    // With the incubator module jdk.incubator.vector (java --add-modules
+    // jdk.incubator.vector), the links are evaluated lane-wise, as many at a
+    // time as there are double lanes in the preferred vector shape of the
+    // platform (4 with AVX2, 8 with AVX-512), see P1546KernelVector. Without
+    // it, or when constructed with vector = false, each link is evaluated by
+    // the scalar methods of P1546.
+    //
+    // The vector logarithms and exponentials are not those of Math, so that
+    // the results of the two paths differ by a few ulps (less than 1e-9 dB);
+    // dslope is identical in both. A kernel is not thread-safe.
+
+    interface Lanes {
+        void step6_10(double[] t, double[] f, double[] h1, byte[] path, double[] d, double[] Emax, double[] E, int n);
+
+        void step9_10(double[] f, double[] Enom, double[] Q, double[] E, int off, int n);
+
+        void Step_19a(double[] t, double[] dland, double[] dsea, double[] Emax, int n);
+
+        void Step_20a(double[] f, double[] E, double[] Lb, int n);
+
+        void dslope(double[] ha, double[] h2, double[] d, double[] htter, double[] hrter, double[] out, int n);
+    }
+
+    final P1546 calculator;
+    private final Lanes lanes;
+    private final boolean vectorized;
+
+    public P1546Kernel(P1546 calculator) {
+        this(calculator, true);
+    }
+
+    public P1546Kernel(P1546 calculator, boolean vector) {
+        // vector: evaluate the links lane-wise if jdk.incubator.vector is available
+        if (calculator == null) {
+            throw new RuntimeException("The calculator must be defined.");
+        }
+        this.calculator = calculator;
+        vectorized = vector && isVectorAvailable();
+        // P1546KernelVector is loaded only if the module is present
+        lanes = vectorized ? P1546KernelVector.create(calculator) : new Scalar(calculator);
+    }
+
+    public static boolean isVectorAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    public boolean isVectorized() {
+        return vectorized;
+    }
+
+    public void step6_10(double[] t, double[] f, double[] h1, byte[] path, double[] d, double[] Emax, double[] E) {
+        // step6_10(t, f, h1, path, d, Emax, E)
+        //
+        // P1546.step6_10 for each link i: E[i] = step6_10(t[i], f[i], h1[i],
+        // path[i], d[i], Emax[i]). The links with t in 1-50 %, f in
+        // 100-2000 MHz, h1 in 10-1200 m and d in 1-1000 km are interpolated
+        // lane-wise from the tables (Step 8.1), the other ones follow
+        // P1546.step6_10.
+        int n = E.length;
+        checkLength(t, n, "t");
+        checkLength(f, n, "f");
+        checkLength(h1, n, "h1");
+        checkLength(d, n, "d");
+        checkLength(Emax, n, "Emax");
+        if (path.length != n) {
+            throw new RuntimeException("Array path must be of length " + n + ".");
+        }
+        lanes.step6_10(t, f, h1, path, d, Emax, E, n);
+    }
+
+    public void Step_19a(double[] t, double[] dland, double[] dsea, double[] Emax) {
+        // Step_19a(t, dland, dsea, Emax): Emax[i] = P1546.Step_19a(t[i], dland[i], dsea[i])
+        int n = Emax.length;
+        checkLength(t, n, "t");
+        checkLength(dland, n, "dland");
+        checkLength(dsea, n, "dsea");
+        lanes.Step_19a(t, dland, dsea, Emax, n);
+    }
+
+    public void Step_20a(double[] f, double[] E, double[] Lb) {
+        // Step_20a(f, E, Lb): Lb[i] = P1546.Step_20a(f[i], E[i])
+        int n = Lb.length;
+        checkLength(f, n, "f");
+        checkLength(E, n, "E");
+        lanes.Step_20a(f, E, Lb, n);
+    }
+
+    public void dslope(double[] ha, double[] h2, double[] d, double[] htter, double[] hrter, double[] out) {
+        // dslope(ha, h2, d, htter, hrter, out): out[i] = P1546.dslope(ha[i], h2[i], d[i], htter[i], hrter[i])
+        int n = out.length;
+        checkLength(ha, n, "ha");
+        checkLength(h2, n, "h2");
+        checkLength(d, n, "d");
+        checkLength(htter, n, "htter");
+        checkLength(hrter, n, "hrter");
+        lanes.dslope(ha, h2, d, htter, hrter, out, n);
+    }
+
+    void step9_10(double[] f, double[] Enom, double[] Q, double[] E, int off, int n) {
+        // P1546FieldStrMixedFrequencySweep: E[off + i] = P1546.step9_10(f[i],
+        // Enom, Q) for the first n frequencies, not defined for the ones
+        // outside 100-2000 MHz
+        lanes.step9_10(f, Enom, Q, E, off, n);
+    }
+
+    void Step_20a(double[] f, double[] E, double[] Lb, int n) {
+        // P1546FieldStrMixedFrequencySweep: the first n elements of Lb
+        lanes.Step_20a(f, E, Lb, n);
+    }
+
+    private static void checkLength(double[] var, int n, String name) {
+        if (var.length != n) {
+            throw new RuntimeException("Array " + name + " must be of length " + n + ".");
+        }
+    }
+
+    static final class Scalar implements Lanes {
+        // one link at a time, also used by P1546KernelVector for the links
+        // outside the tables and the ones after the last full vector
+
+        private final P1546 calculator;
+        private final P1546.Workspace ws = new P1546.Workspace();
+
+        Scalar(P1546 calculator) {
+            this.calculator = calculator;
+        }
+
+        void step6_10(double[] t, double[] f, double[] h1, byte[] path, double[] d, double[] Emax, double[] E, int from, int to) {
+            for (int i = from; i < to; i++) {
+                E[i] = calculator.step6_10(t[i], f[i], h1[i], path[i], d[i], Emax[i], ws);
+            }
+        }
+
+        @Override
+        public void step6_10(double[] t, double[] f, double[] h1, byte[] path, double[] d, double[] Emax, double[] E, int n) {
+            step6_10(t, f, h1, path, d, Emax, E, 0, n);
+        }
+
+        void step9_10(double[] f, double[] Enom, double[] Q, double[] E, int off, int from, int to) {
+            for (int i = from; i < to; i++) {
+                E[off + i] = calculator.step9_10(f[i], Enom, Q, ws);
+            }
+        }
+
+        @Override
+        public void step9_10(double[] f, double[] Enom, double[] Q, double[] E, int off, int n) {
+            step9_10(f, Enom, Q, E, off, 0, n);
+        }
+
+        void Step_19a(double[] t, double[] dland, double[] dsea, double[] Emax, int from, int to) {
+            for (int i = from; i < to; i++) {
+                Emax[i] = calculator.Step_19a(t[i], dland[i], dsea[i]);
+            }
+        }
+
+        @Override
+        public void Step_19a(double[] t, double[] dland, double[] dsea, double[] Emax, int n) {
+            Step_19a(t, dland, dsea, Emax, 0, n);
+        }
+
+        void Step_20a(double[] f, double[] E, double[] Lb, int from, int to) {
+            for (int i = from; i < to; i++) {
+                Lb[i] = calculator.Step_20a(f[i], E[i]);
+            }
+        }
+
+        @Override
+        public void Step_20a(double[] f, double[] E, double[] Lb, int n) {
+            Step_20a(f, E, Lb, 0, n);
+        }
+
+        void dslope(double[] ha, double[] h2, double[] d, double[] htter, double[] hrter, double[] out, int from, int to) {
+            for (int i = from; i < to; i++) {
+                out[i] = calculator.dslope(ha[i], h2[i], d[i], htter[i], hrter[i]);
+            }
+        }
+
+        @Override
+        public void dslope(double[] ha, double[] h2, double[] d, double[] htter, double[] hrter, double[] out, int n) {
+            dslope(ha, h2, d, htter, hrter, out, 0, n);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package main;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+// Recommendation ITU-R P.1546
+
+final class P1546KernelVector implements P1546Kernel.Lanes {
+    //
+    // Lane-wise kernels of P1546Kernel using jdk.incubator.vector, one vector
+    // of SPECIES.length() links at a time. The links after the last full
+    // vector are evaluated by P1546Kernel.Scalar.
+    //
+    // In step6_10 the nominal values around t, f and h1 are found by
+    // comparing each lane with the few nominal values, and the ones around d
+    // from the steps of 1, 5, 10 and 25 km of Table 1. As in searchclosest,
+    // "inf" is the higher nominal value and "sup" the lower one if the value
+    // is not tabulated, both are the value otherwise. The 16 table values are
+    // gathered lane by lane from P1546.tables() (the gathers of the Vector API
+    // are not faster here) and interpolated with the same operations as
+    // P1546.step6_10. The lanes outside the tables are evaluated again by
+    // P1546.step6_10.
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final double TWO52 = 0x1p52;
+
+    private static final double[] T_NOM = P1546.tabIndex(0);
+    private static final double[] F_NOM = P1546.tabIndex(1);
+    private static final double[] H_NOM = P1546.tabIndex(3);
+
+    // Table 1 distances in four sections of equal steps: [first, step, index of first]
+    private static final double[][] D_SECTION = {{1, 1, 0}, {20, 5, 19}, {100, 10, 35}, {200, 25, 45}};
+
+    private static final int T_STRIDE = P1546.NF * P1546.ND * P1546.NH;
+    private static final int F_STRIDE = P1546.ND * P1546.NH;
+    private static final int PATH_STRIDE = P1546.NT * T_STRIDE;
+
+    private final P1546Kernel.Scalar scalar;
+    private final double[] Qnom;
+    private final double[] tab = P1546.tables();
+
+    // per-vector work arrays: the interpolation weights, the indices of the
+    // nominal values, the 16 table values and the field strengths at the 4
+    // nominal time percentages and frequencies
+    private final double[] pathd = new double[SPECIES.length()];
+    private final double[] Qt = new double[SPECIES.length()];
+    private final double[] Qinf = new double[SPECIES.length()];
+    private final double[] Qsup = new double[SPECIES.length()];
+    private final double[] fnum = new double[SPECIES.length()];
+    private final double[] fden = new double[SPECIES.length()];
+    private final double[] hnum = new double[SPECIES.length()];
+    private final double[] hden = new double[SPECIES.length()];
+    private final double[] dnum = new double[SPECIES.length()];
+    private final double[] dden = new double[SPECIES.length()];
+    private final double[][] x = new double[8][SPECIES.length()];   // inf_x, sup_x of t, f, h1, d
+    private final int[] tf = new int[4];
+    private final int[] hd = new int[4];
+    private final double[][] Etab = new double[16][SPECIES.length()];
+    private final double[][] Ef = new double[4][SPECIES.length()];
+
+    private P1546KernelVector(P1546 calculator) {
+        scalar = new P1546Kernel.Scalar(calculator);
+        Qnom = new double[T_NOM.length];
+        for (int ii = 0; ii < T_NOM.length; ii++) {
+            Qnom[ii] = calculator.Qi(T_NOM[ii] / 100);
+        }
+    }
+
+    static P1546Kernel.Lanes create(P1546 calculator) {
+        return new P1546KernelVector(calculator);
+    }
+
+    @Override
+    public void step6_10(double[] t, double[] f, double[] h1, byte[] path, double[] d, double[] Emax, double[] E, int n) {
+        // The stages exchange their vectors through the work arrays, so that
+        // each one is compiled with its vectors in registers; the lanes
+        // outside the tables (or NaN) are computed for values within the
+        // tables and replaced
+        int L = SPECIES.length();
+        int upper = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < upper; i += L) {
+            for (int j = 0; j < L; j++) {
+                pathd[j] = path[i + j];
+            }
+            time(t, i);
+            nominals(f, i, F_NOM, fnum, fden, x[2], x[3]);
+            nominals(h1, i, H_NOM, hnum, hden, x[4], x[5]);
+            distance(d, i);
+            gather();
+            for (int c = 0; c < 4; c++) {
+                heights(c, Emax, i);
+            }
+            combine(E, i);
+
+            for (int j = i; j < i + L; j++) {
+                if (!(t[j] >= 1 && t[j] <= 50 && f[j] >= 100 && f[j] <= 2000 && h1[j] >= 10 && h1[j] <= 1200
+                        && d[j] >= 1 && d[j] <= 1000 && path[j] >= 1 && path[j] <= 3)) {
+                    scalar.step6_10(t, f, h1, path, d, Emax, E, j, j + 1);
+                }
+            }
+        }
+        scalar.step6_10(t, f, h1, path, d, Emax, E, i, n);
+    }
+
+    @Override
+    public void step9_10(double[] f, double[] Enom, double[] Q, double[] E, int off, int n) {
+        // Steps 9 and 10 of combine, from the field strengths at the nominal
+        // frequencies around each lane, with the same Q in all the lanes (all
+        // 0 for a nominal time percentage, so that combine takes Ep0)
+        int L = SPECIES.length();
+        int kt = Q == null ? 0 : 3;
+        Arrays.fill(Qinf, Q == null ? 0 : Q[0]);
+        Arrays.fill(Qt, Q == null ? 0 : Q[1]);
+        Arrays.fill(Qsup, Q == null ? 0 : Q[2]);
+        int upper = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < upper; i += L) {
+            nominals(f, i, F_NOM, fnum, fden, x[2], x[3]);
+            for (int j = 0; j < L; j++) {
+                int f0 = (int) x[2][j];
+                int f1 = (int) x[3][j];
+                Ef[0][j] = Enom[f0];
+                Ef[1][j] = Enom[f1];
+                Ef[2][j] = Enom[kt + f0];
+                Ef[3][j] = Enom[kt + f1];
+            }
+            combine(E, off + i);
+        }
+        scalar.step9_10(f, Enom, Q, E, off, i, n);
+    }
+
+    private void time(double[] t, int i) {
+        // Step 2: nominal time percentages (1, 10, 50 %), Qi for equ'n (16)
+        DoubleVector tv = DoubleVector.fromArray(SPECIES, t, i).max(T_NOM[0]).min(T_NOM[2]);
+        VectorMask<Double> m1 = tv.compare(VectorOperators.GE, T_NOM[1]);
+        VectorMask<Double> m2 = tv.compare(VectorOperators.GE, T_NOM[2]);
+        DoubleVector sup = DoubleVector.broadcast(SPECIES, T_NOM[0]).blend(T_NOM[1], m1).blend(T_NOM[2], m2);
+        VectorMask<Double> tab = tv.compare(VectorOperators.EQ, sup);
+        DoubleVector sup_x = DoubleVector.zero(SPECIES).blend(1, m1).blend(2, m2);
+        sup_x.intoArray(x[1], 0);
+        sup_x.add(1).blend(sup_x, tab).intoArray(x[0], 0);
+        DoubleVector Qs = DoubleVector.broadcast(SPECIES, Qnom[0]).blend(Qnom[1], m1).blend(Qnom[2], m2);
+        Qs.intoArray(Qsup, 0);
+        DoubleVector.broadcast(SPECIES, Qnom[1]).blend(Qnom[2], m1).blend(Qs, tab).intoArray(Qinf, 0);
+
+        // P1546.Qi for t/100 <= 0.5, equ'ns (39a,c,d)
+        DoubleVector T = tv.div(100).lanewise(VectorOperators.LOG).mul(-2).sqrt();
+        DoubleVector C = T.mul(0.010328).add(0.802853).mul(T).add(2.515517)
+                .div(T.mul(0.001308).add(0.189269).mul(T).add(1.432788).mul(T).add(1));
+        T.sub(C).intoArray(Qt, 0);
+    }
+
+    private void nominals(double[] v, int i, double[] nom, double[] num, double[] den, double[] inf_x, double[] sup_x) {
+        // Steps 3 and 8.1.2: nominal frequencies or heights nom, weights of
+        // equ'ns (14) and (8)
+        int end = nom.length - 1;
+        DoubleVector vv = DoubleVector.fromArray(SPECIES, v, i).max(nom[0]).min(nom[end]);
+        DoubleVector sup = DoubleVector.broadcast(SPECIES, nom[0]);
+        DoubleVector next = DoubleVector.broadcast(SPECIES, nom[1]);
+        DoubleVector sx = DoubleVector.zero(SPECIES);
+        for (int j = 1; j <= end; j++) {
+            VectorMask<Double> m = vv.compare(VectorOperators.GE, nom[j]);
+            sup = sup.blend(nom[j], m);
+            next = next.blend(nom[Math.min(j + 1, end)], m);
+            sx = sx.blend(j, m);
+        }
+        VectorMask<Double> tab = vv.compare(VectorOperators.EQ, sup);
+        DoubleVector inf = next.blend(sup, tab);
+        sx.intoArray(sup_x, 0);
+        sx.add(1).blend(sx, tab).intoArray(inf_x, 0);
+        vv.div(inf).lanewise(VectorOperators.LOG10).blend(0, tab).intoArray(num, 0);
+        sup.div(inf).lanewise(VectorOperators.LOG10).blend(1, tab).intoArray(den, 0);
+    }
+
+    private void distance(double[] d, int i) {
+        // Step 4: nominal distances, weights of equ'n (13)
+        DoubleVector dv = DoubleVector.fromArray(SPECIES, d, i).max(1).min(1000);
+        DoubleVector first = DoubleVector.broadcast(SPECIES, D_SECTION[0][0]);
+        DoubleVector step = DoubleVector.broadcast(SPECIES, D_SECTION[0][1]);
+        DoubleVector base_x = DoubleVector.broadcast(SPECIES, D_SECTION[0][2]);
+        for (int s = 1; s < D_SECTION.length; s++) {
+            VectorMask<Double> m = dv.compare(VectorOperators.GE, D_SECTION[s][0]);
+            first = first.blend(D_SECTION[s][0], m);
+            step = step.blend(D_SECTION[s][1], m);
+            base_x = base_x.blend(D_SECTION[s][2], m);
+        }
+        // k = floor((d - first)/step), rounded to an integer by adding and
+        // subtracting 2^52, one less if the quotient was rounded up
+        DoubleVector q = dv.sub(first).div(step);
+        DoubleVector k = q.add(TWO52).sub(TWO52);
+        k = k.blend(k.sub(1), k.compare(VectorOperators.GT, q));
+        DoubleVector sup = first.add(k.mul(step));
+        // the quotient itself may be rounded up to the next integer
+        VectorMask<Double> above = sup.compare(VectorOperators.GT, dv);
+        k = k.blend(k.sub(1), above);
+        sup = sup.blend(sup.sub(step), above);
+        VectorMask<Double> tab = dv.compare(VectorOperators.EQ, sup);
+        DoubleVector inf = sup.add(step).blend(sup, tab);
+        DoubleVector sx = base_x.add(k);
+        sx.intoArray(x[7], 0);
+        sx.add(1).blend(sx, tab).intoArray(x[6], 0);
+        dv.div(inf).lanewise(VectorOperators.LOG10).blend(0, tab).intoArray(dnum, 0);
+        sup.div(inf).lanewise(VectorOperators.LOG10).blend(1, tab).intoArray(dden, 0);
+    }
+
+    private void gather() {
+        // the table values at (t, f, h1, d) = (inf or sup, ...), lane by lane:
+        // Etab[((kt*2 + kf)*2 + kh)*2 + kd] with k = 0 for inf, 1 for sup
+        for (int j = 0; j < pathd.length; j++) {
+            int p = (Math.max(1, Math.min((int) pathd[j], 3)) - 1) * PATH_STRIDE;
+            int t0 = p + (int) x[0][j] * T_STRIDE;
+            int t1 = p + (int) x[1][j] * T_STRIDE;
+            int f0 = (int) x[2][j] * F_STRIDE;
+            int f1 = (int) x[3][j] * F_STRIDE;
+            int h0 = (int) x[4][j];
+            int h1 = (int) x[5][j];
+            int d0 = (int) x[6][j] * P1546.NH;
+            int d1 = (int) x[7][j] * P1546.NH;
+            tf[0] = t0 + f0;
+            tf[1] = t0 + f1;
+            tf[2] = t1 + f0;
+            tf[3] = t1 + f1;
+            hd[0] = h0 + d0;
+            hd[1] = h0 + d1;
+            hd[2] = h1 + d0;
+            hd[3] = h1 + d1;
+            for (int c = 0; c < 16; c++) {
+                Etab[c][j] = tab[tf[c >> 2] + hd[c & 3]];
+            }
+        }
+    }
+
+    private void heights(int c, double[] Emax, int i) {
+        // Steps 8.1.4 and 8.1.5 at the nominal heights, equ'n (13), and Step
+        // 8.1.6, equ'n (8), limited to Emax, at the nominal time percentage
+        // and frequency c = kt*2 + kf
+        DoubleVector dn = DoubleVector.fromArray(SPECIES, dnum, 0);
+        DoubleVector dd = DoubleVector.fromArray(SPECIES, dden, 0);
+        DoubleVector Einf = DoubleVector.fromArray(SPECIES, Etab[4 * c], 0);
+        DoubleVector Esup = DoubleVector.fromArray(SPECIES, Etab[4 * c + 1], 0);
+        DoubleVector Eh0 = Einf.add(Esup.sub(Einf).mul(dn).div(dd));
+        Einf = DoubleVector.fromArray(SPECIES, Etab[4 * c + 2], 0);
+        Esup = DoubleVector.fromArray(SPECIES, Etab[4 * c + 3], 0);
+        DoubleVector Eh1 = Einf.add(Esup.sub(Einf).mul(dn).div(dd));
+        DoubleVector hn = DoubleVector.fromArray(SPECIES, hnum, 0);
+        DoubleVector hd = DoubleVector.fromArray(SPECIES, hden, 0);
+        Eh0.add(Eh1.sub(Eh0).mul(hn).div(hd)).min(DoubleVector.fromArray(SPECIES, Emax, i)).intoArray(Ef[c], 0);
+    }
+
+    private void combine(double[] E, int i) {
+        // Step 9, equ'n (14), at the nominal time percentages
+        DoubleVector fn = DoubleVector.fromArray(SPECIES, fnum, 0);
+        DoubleVector fd = DoubleVector.fromArray(SPECIES, fden, 0);
+        DoubleVector E0 = DoubleVector.fromArray(SPECIES, Ef[0], 0);
+        DoubleVector Ep0 = E0.add(DoubleVector.fromArray(SPECIES, Ef[1], 0).sub(E0).mul(fn).div(fd));
+        DoubleVector E1 = DoubleVector.fromArray(SPECIES, Ef[2], 0);
+        DoubleVector Ep1 = E1.add(DoubleVector.fromArray(SPECIES, Ef[3], 0).sub(E1).mul(fn).div(fd));
+
+        // Step 10, equ'n (16)
+        DoubleVector Qi = DoubleVector.fromArray(SPECIES, Qinf, 0);
+        DoubleVector Qs = DoubleVector.fromArray(SPECIES, Qsup, 0);
+        DoubleVector Q = DoubleVector.fromArray(SPECIES, Qt, 0);
+        DoubleVector Qden = Qi.sub(Qs);
+        Ep1.mul(Qi.sub(Q)).div(Qden).add(Ep0.mul(Q.sub(Qs)).div(Qden))
+                .blend(Ep0, Qi.compare(VectorOperators.EQ, Qs)).intoArray(E, i);
+    }
+
+    @Override
+    public void Step_19a(double[] t, double[] dland, double[] dsea, double[] Emax, int n) {
+        int upper = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector tv = DoubleVector.fromArray(SPECIES, t, i);
+            if (tv.compare(VectorOperators.LT, 1).or(tv.compare(VectorOperators.GT, 50)).anyTrue()) {
+                throw new RuntimeException("The percentage time out of band [1% , 50% ].");
+            }
+            DoubleVector dl = DoubleVector.fromArray(SPECIES, dland, i);
+            DoubleVector ds = DoubleVector.fromArray(SPECIES, dsea, i);
+            DoubleVector dtotal = dl.add(ds);
+
+            // (2), (3) and (42)
+            DoubleVector Efs = DoubleVector.broadcast(SPECIES, 106.9).sub(dtotal.lanewise(VectorOperators.LOG10).mul(20));
+            DoubleVector Ese = DoubleVector.broadcast(SPECIES, 1).sub(dtotal.neg().div(8.94).lanewise(VectorOperators.EXP))
+                    .mul(2.38).mul(DoubleVector.broadcast(SPECIES, 50).div(tv).lanewise(VectorOperators.LOG10));
+            Efs.add(ds.mul(Ese).div(dtotal)).intoArray(Emax, i);
+        }
+        scalar.Step_19a(t, dland, dsea, Emax, i, n);
+    }
+
+    @Override
+    public void Step_20a(double[] f, double[] E, double[] Lb, int n) {
+        int upper = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector fv = DoubleVector.fromArray(SPECIES, f, i);
+            DoubleVector Ev = DoubleVector.fromArray(SPECIES, E, i);
+            DoubleVector.broadcast(SPECIES, 139.3).sub(Ev).add(fv.lanewise(VectorOperators.LOG10).mul(20)).intoArray(Lb, i);
+        }
+        scalar.Step_20a(f, E, Lb, i, n);
+    }
+
+    @Override
+    public void dslope(double[] ha, double[] h2, double[] d, double[] htter, double[] hrter, double[] out, int n) {
+        int upper = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector dh = DoubleVector.fromArray(SPECIES, ha, i).add(DoubleVector.fromArray(SPECIES, htter, i))
+                    .sub(DoubleVector.fromArray(SPECIES, h2, i).add(DoubleVector.fromArray(SPECIES, hrter, i)));
+            DoubleVector dv = DoubleVector.fromArray(SPECIES, d, i);
+            // equ'n (37a,b), 1e-6 * dh^2 as in P1546.dslope
+            dv.mul(dv).add(dh.mul(dh).mul(1e-6)).sqrt().intoArray(out, i);
+        }
+        scalar.dslope(ha, h2, d, htter, hrter, out, i, n);
+    }
+}
@@ -0,0 +1,251 @@
+package main;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Recommendation ITU-R P.1546
+
+public final class P1546RadialSweep {
+    //
+    // Radial sweep coverage engine: basic transmission loss from one
+    // transmitter to receivers placed every step km along nAzimuths radials,
+    // resampled to a Cartesian grid of latitudes and longitudes.
+    //
+    // Each radial is walked outward once. The terrain-dependent inputs of all
+    // its receivers come from a single pass over the terrain profile (see
+    // P1546Terrain.radialInputs), the path zones from a single march over the
+    // zone mask (see P1546ZoneMask.Radial), and Steps 6-10 from the
+    // transmitter curves for the effective height of the radial (see
+    // P1546.TransmitterCurves), so that the cost per receiver does not grow
+    // with its distance. The receivers closer than 15 km on land or mixed
+    // paths, for which h1 = hb (equ'n (6)), are evaluated with heff = hb of
+    // each receiver instead of the curves. The radials are evaluated in parallel by fork/join tasks,
+    // each one with its own P1546.Workspace.
+
+    private final P1546 calculator;
+    private final P1546Terrain terrain;
+    private final P1546ZoneMask mask;
+    private final ForkJoinPool pool;
+
+    public P1546RadialSweep(P1546 calculator, P1546Terrain terrain, P1546ZoneMask mask) {
+        this(calculator, terrain, mask, ForkJoinPool.commonPool());
+    }
+
+    public P1546RadialSweep(P1546 calculator, P1546Terrain terrain, P1546ZoneMask mask, ForkJoinPool pool) {
+        // mask may be null for land paths only
+        if (calculator == null || terrain == null || pool == null) {
+            throw new RuntimeException("The calculator, the terrain and the pool must be defined.");
+        }
+        this.calculator = calculator;
+        this.terrain = terrain;
+        this.mask = mask;
+        this.pool = pool;
+    }
+
+    public static final class Transmitter {
+        // Transmitter/base station (see P1546FieldStrMixed):
+        //
+        // lat, lon: deg     Position
+        // f:        MHz     Required frequency
+        // t:        %       Required percentage time
+        // ha:       m       Transmitter antenna height above ground
+        // q:        %       Location variability (default 50%)
+        // PTx:      kW      Transmitter (e.r.p) power in kW (default 1 kW)
+        // R1:       m       Representative clutter height around transmitter (-1 if not available)
+        // sigma_L:  dB      Location variability standard deviation
+
+        final double lat;
+        final double lon;
+        final double f;
+        final double t;
+        final double ha;
+        final double q;
+        final double PTx;
+        final double R1;
+        final double sigma_L;
+
+        public Transmitter(double lat, double lon, double f, double t, double ha, double q, double PTx, double R1,
+                           double sigma_L) {
+            this.lat = lat;
+            this.lon = lon;
+            this.f = f;
+            this.t = t;
+            this.ha = ha;
+            this.q = q;
+            this.PTx = PTx;
+            this.R1 = R1;
+            this.sigma_L = sigma_L;
+        }
+    }
+
+    public static final class Result {
+        // Basic transmission loss at the receivers k = 1..n of the radials
+        // a = 0..nAzimuths-1, at the distance k*step and the bearing
+        // a*360/nAzimuths, stored at index a*n + k-1
+
+        private final double lat;
+        private final double lon;
+        private final int nAzimuths;
+        private final int n;
+        private final double step;
+        private final double[] Lb;
+
+        Result(double lat, double lon, int nAzimuths, int n, double step) {
+            this.lat = lat;
+            this.lon = lon;
+            this.nAzimuths = nAzimuths;
+            this.n = n;
+            this.step = step;
+            this.Lb = new double[nAzimuths * n];
+        }
+
+        public int getAzimuthCount() {
+            return nAzimuths;
+        }
+
+        public int getCount() {
+            return n;
+        }
+
+        public double getStep() {
+            return step;
+        }
+
+        public double getLoss(int a, int k) {
+            return Lb[a * n + k - 1];
+        }
+
+        public double getLoss(double bearing, double d) {
+            // basic transmission loss at the bearing (deg) and distance d (km),
+            // interpolated linearly in bearing and distance between the four
+            // surrounding receivers, NaN beyond the last receiver; receivers
+            // closer than step take the value of the first receiver
+            double kf = d / step;
+            if (!(kf <= n)) {
+                return Double.NaN;
+            }
+            kf = Math.max(kf, 1);
+            int k = Math.min((int) kf, n);
+            double wk = kf - k;
+            double af = ((bearing % 360 + 360) % 360) * nAzimuths / 360;
+            int a = Math.min((int) af, nAzimuths - 1);
+            double wa = af - a;
+            double L0 = interpolate(getLoss(a, k), k < n ? getLoss(a, k + 1) : 0, wk);
+            double L1 = interpolate(getLoss((a + 1) % nAzimuths, k), k < n ? getLoss((a + 1) % nAzimuths, k + 1) : 0, wk);
+            return interpolate(L0, L1, wa);
+        }
+
+        private static double interpolate(double L0, double L1, double w) {
+            return w > 0 ? L0 * (1 - w) + L1 * w : L0;
+        }
+
+        public void resample(int rows, int cols, double latNorth, double lonWest, double dlat, double dlon, double[] out) {
+            // Fills out (rows*cols elements) with the basic transmission loss at
+            // the cells (row, col) of a Cartesian grid, located at
+            // (latNorth - row*dlat, lonWest + col*dlon) and stored at index
+            // row*cols + col (see getLoss(bearing, d))
+            if (out == null || out.length != rows * cols) {
+                throw new RuntimeException("Output array must have rows*cols elements.");
+            }
+            for (int row = 0; row < rows; row++) {
+                double plat = latNorth - row * dlat;
+                for (int col = 0; col < cols; col++) {
+                    double plon = lonWest + col * dlon;
+                    double d = GreatCircle.distance(lat, lon, plat, plon);
+                    out[row * cols + col] = getLoss(GreatCircle.bearing(lat, lon, plat, plon), d);
+                }
+            }
+        }
+    }
+
+    public Result compute(Transmitter tx, double h2, double R2, P1546.ClutterEnvironment area, int nAzimuths,
+                          double step, double dmax) {
+        // result = sweep.compute(tx, h2, R2, area, nAzimuths, step, dmax)
+        //
+        // h2:        m    Receiver antenna height above ground
+        // R2:        m    Representative clutter height around receiver
+        // area:           Receiver clutter environment
+        // nAzimuths:      Number of radials, evenly spaced from bearing 0 deg
+        // step:      km   Spacing of the receivers and of the profile samples
+        // dmax:      km   Length of the radials
+        if (nAzimuths < 1) {
+            throw new RuntimeException("The sweep must have at least one radial.");
+        }
+        if (!(step > 0) || !(dmax >= step)) {
+            throw new RuntimeException("The step must be positive and not larger than the radial length.");
+        }
+        Result result = new Result(tx.lat, tx.lon, nAzimuths, (int) Math.floor(dmax / step), step);
+        P1546.PathZones[] land = null;
+        if (mask == null) {
+            // the receivers of all the radials are at the same distances k*step
+            land = new P1546.PathZones[result.n];
+            for (int k = 1; k <= result.n; k++) {
+                land[k - 1] = new P1546.PathZones(new double[]{k * step}, new byte[]{P1546.LAND});
+            }
+        }
+        pool.invoke(new Radials(tx, h2, R2, area, land, result, 0, nAzimuths));
+        return result;
+    }
+
+    private final class Radials extends RecursiveAction {
+        // radials from..to-1
+        private static final long serialVersionUID = 1L;
+        private final Transmitter tx;
+        private final double h2;
+        private final double R2;
+        private final P1546.ClutterEnvironment area;
+        private final P1546.PathZones[] land;
+        private final Result result;
+        private final int from;
+        private final int to;
+
+        Radials(Transmitter tx, double h2, double R2, P1546.ClutterEnvironment area, P1546.PathZones[] land,
+                Result result, int from, int to) {
+            this.tx = tx;
+            this.h2 = h2;
+            this.R2 = R2;
+            this.area = area;
+            this.land = land;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Radials(tx, h2, R2, area, land, result, from, mid),
+                        new Radials(tx, h2, R2, area, land, result, mid, to));
+                return;
+            }
+            radial(tx, h2, R2, area, land, result, from, new P1546.Workspace());
+        }
+    }
+
+    private void radial(Transmitter tx, double h2, double R2, P1546.ClutterEnvironment area, P1546.PathZones[] land,
+                        Result result, int a, P1546.Workspace ws) {
+        // land: path zones of the receivers k = 1..n at index k-1 if there is no mask
+        double bearing = a * 360.0 / result.nAzimuths;
+        int n = result.n;
+        double step = result.step;
+        P1546Terrain.RadialInputs in = terrain.radialInputs(tx.lat, tx.lon, tx.ha, bearing, h2, step, n);
+        P1546ZoneMask.Radial zones = mask == null ? null : mask.radial(tx.lat, tx.lon, bearing, step);
+        P1546.TransmitterCurves tc = calculator.transmitterCurves(tx.f, tx.t, in.getEffectiveHeight());
+        for (int k = 1; k <= n; k++) {
+            double d = k * step;
+            P1546.PathZones path = zones == null ? land[k - 1] : zones.zones(d);
+            double heff = P1546.heff(in.getEffectiveHeight(), in.getHb(k), 1, path);
+            if (heff != in.getEffectiveHeight()) {
+                // equ'n (6): h1 = hb of the receiver, heff of the curves only applies from 15 km
+                result.Lb[a * n + k - 1] = calculator.P1546FieldStrMixed(tx.f, tx.t, heff, h2, R2, area, path, 1,
+                        tx.q, tx.PTx, tx.ha, in.getHb(k), tx.R1, in.getTca(k), in.getHtter(), in.getHrter(k),
+                        in.getEff1(k), in.getEff2(k), tx.sigma_L, ws);
+                continue;
+            }
+            result.Lb[a * n + k - 1] = calculator.P1546FieldStrMixed(tc, h2, R2, area, path, 1, tx.q, tx.PTx,
+                    tx.ha, in.getHb(k), tx.R1, in.getTca(k), in.getHtter(), in.getHrter(k), in.getEff1(k), in.getEff2(k),
+                    tx.sigma_L, ws);
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package main;
+
+// Recommendation ITU-R P.1546
+
+public final class P1546SiteIndex {
+    //
+    // Spatial index of transmitter sites for the interference at a victim
+    // receiver: only the sites whose field strength at the victim can exceed
+    // a threshold Emin are returned and evaluated.
+    //
+    // The field strength of a link for the e.r.p. PTx is limited by the Emax
+    // of Step 19 (the slope-path correction of Step 16 is not positive):
+    //
+    //   E <= 106.9 - 20 log10(d) + 2.38 log10(50/t) + 10 log10(PTx) = K - 20 log10(d)
+    //
+    // so that each site has a maximum reach 10^((K - Emin)/20) km beyond which
+    // its field strength is below Emin whatever the path. The sites are kept
+    // in a k-d tree of their positions as unit vectors, where the chord
+    // length is an increasing function of the great-circle distance, and each
+    // node holds the largest K of its sites: a query visits only the nodes
+    // whose bounding box lies within the reach of that K.
+    //
+    // The index is immutable and may be shared between threads.
+
+    private static final int LEAF_SIZE = 8;
+
+    // Relative margin of the reach, covering the rounding of the chord lengths
+    private static final double REACH_MARGIN = 1e-9;
+
+    private final P1546 calculator;
+    private final P1546ZoneMask mask;
+    private final P1546Terrain terrain;
+    private final double step;
+    private final Site[] sites;
+
+    // sites in tree order, as unit vectors, with the reach for Emin = 0 as
+    // a half angle on the unit sphere, 10^(K/20)/(2R)
+    private final int[] order;
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final double[] reach;
+
+    // nodes of the tree: sites lo[n] .. hi[n]-1 of order, bounding box,
+    // largest and smallest reach; the children of node n are 2n+1 and 2n+2
+    private final int[] lo;
+    private final int[] hi;
+    private final double[] box;   // xmin, xmax, ymin, ymax, zmin, zmax at 6n
+    private final double[] reachMax;
+    private final double[] reachMin;
+
+    public static final class Site {
+        // Transmitter/base station (see P1546FieldStrMixed):
+        //
+        // lat, lon: deg     Position
+        // f:        MHz     Required frequency
+        // t:        %       Required percentage time
+        // heff:     m       Effective height of the transmitting/base antenna
+        // pathinfo: 0/1     0 - no terrain profile information available,
+        //                   1 - terrain information available
+        // q:        %       Location variability (default 50%)
+        // PTx:      kW      Transmitter (e.r.p) power in kW (default 1 kW)
+        // ha:       m       Transmitter antenna height above ground
+        // R1:       m       Representative clutter height around transmitter (-1 if not available)
+        // htter:    m       Terrain height at the transmitter site
+        // sigma_L:  dB      Location variability standard deviation
+
+        final double lat;
+        final double lon;
+        final double f;
+        final double t;
+        final double heff;
+        final int pathinfo;
+        final double q;
+        final double PTx;
+        final double ha;
+        final double R1;
+        final double htter;
+        final double sigma_L;
+
+        public Site(double lat, double lon, double f, double t, double heff, int pathinfo, double q, double PTx,
+                    double ha, double R1, double htter, double sigma_L) {
+            this.lat = lat;
+            this.lon = lon;
+            this.f = f;
+            this.t = t;
+            this.heff = heff;
+            this.pathinfo = pathinfo;
+            this.q = q;
+            this.PTx = PTx;
+            this.ha = ha;
+            this.R1 = R1;
+            this.htter = htter;
+            this.sigma_L = sigma_L;
+        }
+    }
+
+    public P1546SiteIndex(P1546 calculator, Site[] sites, P1546ZoneMask mask, double step) {
+        this(calculator, sites, mask, null, step);
+    }
+
+    public P1546SiteIndex(P1546 calculator, Site[] sites, P1546ZoneMask mask, P1546Terrain terrain, double step) {
+        // index = new P1546SiteIndex(calculator, sites, mask, terrain, step)
+        //
+        // sites:   transmitter sites, referred to by their index in this array
+        // mask:    zone mask of the paths, or null for land paths only
+        // terrain: terrain heights for hb of the sites with pathinfo = 1 (see
+        //          evaluate), or null if not available (hb = -10000)
+        // step:    km   length of the segments of the paths in the mask (see
+        //          P1546ZoneMask) and spacing of the terrain profile samples
+        if (calculator == null || sites == null) {
+            throw new RuntimeException("The calculator and the sites must be defined.");
+        }
+        if ((mask != null || terrain != null) && !(step > 0)) {
+            throw new RuntimeException("The segment length must be positive.");
+        }
+        this.calculator = calculator;
+        this.mask = mask;
+        this.terrain = terrain;
+        this.step = step;
+        this.sites = sites.clone();
+
+        int n = sites.length;
+        order = new int[n];
+        x = new double[n];
+        y = new double[n];
+        z = new double[n];
+        reach = new double[n];
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double[] zs = new double[n];
+        for (int i = 0; i < n; i++) {
+            Site s = sites[i];
+            if (s == null) {
+                throw new RuntimeException("Site " + i + " is not defined.");
+            }
+            if (!(s.t >= 1 && s.t <= 50) || !(s.PTx > 0)) {
+                throw new RuntimeException("Site " + i + " must have 1 <= t <= 50 % and PTx > 0.");
+            }
+            double phi = Math.toRadians(s.lat);
+            double lambda = Math.toRadians(s.lon);
+            xs[i] = Math.cos(phi) * Math.cos(lambda);
+            ys[i] = Math.cos(phi) * Math.sin(lambda);
+            zs[i] = Math.sin(phi);
+            order[i] = i;
+        }
+
+        int nodes = 1;
+        while (nodes * LEAF_SIZE < n) {
+            nodes = 2 * nodes;
+        }
+        nodes = 2 * nodes - 1;
+        lo = new int[nodes];
+        hi = new int[nodes];
+        box = new double[6 * nodes];
+        reachMax = new double[nodes];
+        reachMin = new double[nodes];
+        build(0, 0, n, xs, ys, zs);
+
+        for (int k = 0; k < n; k++) {
+            Site s = sites[order[k]];
+            x[k] = xs[order[k]];
+            y[k] = ys[order[k]];
+            z[k] = zs[order[k]];
+            double K = 106.9 + 2.38 * Math.log10(50 / s.t) + 10 * Math.log10(s.PTx);
+            reach[k] = Math.pow(10, K / 20) / (2 * GreatCircle.R);
+        }
+        for (int node = nodes - 1; node >= 0; node--) {
+            if (2 * node + 1 < nodes && lo[2 * node + 1] < hi[2 * node + 1]) {
+                reachMax[node] = Math.max(reachMax[2 * node + 1], reachMax[2 * node + 2]);
+                reachMin[node] = Math.min(reachMin[2 * node + 1], reachMin[2 * node + 2]);
+            } else {
+                double rmax = 0;
+                double rmin = Double.POSITIVE_INFINITY;
+                for (int k = lo[node]; k < hi[node]; k++) {
+                    rmax = Math.max(rmax, reach[k]);
+                    rmin = Math.min(rmin, reach[k]);
+                }
+                reachMax[node] = rmax;
+                reachMin[node] = rmin;
+            }
+        }
+    }
+
+    private void build(int node, int from, int to, double[] xs, double[] ys, double[] zs) {
+        // node of the sites order[from .. to-1], split at the median of the
+        // axis of largest extent while there are more than LEAF_SIZE sites
+        lo[node] = from;
+        hi[node] = to;
+        double[] b = box;
+        int o = 6 * node;
+        b[o] = b[o + 2] = b[o + 4] = Double.POSITIVE_INFINITY;
+        b[o + 1] = b[o + 3] = b[o + 5] = Double.NEGATIVE_INFINITY;
+        for (int k = from; k < to; k++) {
+            int i = order[k];
+            b[o] = Math.min(b[o], xs[i]);
+            b[o + 1] = Math.max(b[o + 1], xs[i]);
+            b[o + 2] = Math.min(b[o + 2], ys[i]);
+            b[o + 3] = Math.max(b[o + 3], ys[i]);
+            b[o + 4] = Math.min(b[o + 4], zs[i]);
+            b[o + 5] = Math.max(b[o + 5], zs[i]);
+        }
+        if (2 * node + 1 >= lo.length) {
+            return;
+        }
+        if (to - from <= LEAF_SIZE) {
+            // empty children
+            for (int child = 2 * node + 1; child <= 2 * node + 2; child++) {
+                markEmpty(child);
+            }
+            return;
+        }
+        double ex = b[o + 1] - b[o];
+        double ey = b[o + 3] - b[o + 2];
+        double ez = b[o + 5] - b[o + 4];
+        double[] c = ex >= ey && ex >= ez ? xs : (ey >= ez ? ys : zs);
+        int mid = (from + to) >>> 1;
+        select(c, from, to - 1, mid);
+        build(2 * node + 1, from, mid, xs, ys, zs);
+        build(2 * node + 2, mid, to, xs, ys, zs);
+    }
+
+    private void markEmpty(int node) {
+        if (node >= lo.length) {
+            return;
+        }
+        lo[node] = 0;
+        hi[node] = 0;
+        markEmpty(2 * node + 1);
+        markEmpty(2 * node + 2);
+    }
+
+    private void select(double[] c, int left, int right, int k) {
+        // partially sorts order[left .. right] by c so that order[k] is in its
+        // sorted position (quickselect)
+        while (left < right) {
+            double pivot = c[order[(left + right) >>> 1]];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (c[order[i]] < pivot) {
+                    i++;
+                }
+                while (c[order[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return sites.length;
+    }
+
+    public Site getSite(int i) {
+        return sites[i];
+    }
+
+    public int query(double lat, double lon, double Emin, int[] out) {
+        // n = index.query(lat, lon, Emin, out)
+        //
+        // Writes into out[0 .. n-1], in increasing order, the indices of the
+        // sites whose field strength bound K - 20 log10(d) at the victim
+        // (lat, lon) deg is not below Emin dB(uV/m); out must have size()
+        // elements
+        if (out == null || out.length < sites.length) {
+            throw new RuntimeException("Output array must have one element per site.");
+        }
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
+        double px = Math.cos(phi) * Math.cos(lambda);
+        double py = Math.cos(phi) * Math.sin(lambda);
+        double pz = Math.sin(phi);
+        double g = Math.pow(10, -Emin / 20) * (1 + REACH_MARGIN);
+        int n = sites.length == 0 ? 0 : visit(0, px, py, pz, g, out, 0);
+
+        // increasing order through a bit set of the sites, in O(n + size()/64)
+        long[] bits = new long[(sites.length + 63) >>> 6];
+        for (int k = 0; k < n; k++) {
+            bits[out[k] >>> 6] |= 1L << out[k];
+        }
+        int k = 0;
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                out[k] = (w << 6) + Long.numberOfTrailingZeros(word);
+                k = k + 1;
+                word = word & (word - 1);
+            }
+        }
+        return n;
+    }
+
+    private int visit(int node, double px, double py, double pz, double g, int[] out, int n) {
+        // sites of the node within their reach, scaled by g = 10^(-Emin/20)
+        if (lo[node] >= hi[node]) {
+            return n;
+        }
+        double c2 = chord2(reachMax[node] * g);
+        double[] b = box;
+        int o = 6 * node;
+        double dx = Math.max(Math.max(b[o] - px, px - b[o + 1]), 0);
+        double dy = Math.max(Math.max(b[o + 2] - py, py - b[o + 3]), 0);
+        double dz = Math.max(Math.max(b[o + 4] - pz, pz - b[o + 5]), 0);
+        if (dx * dx + dy * dy + dz * dz > c2) {
+            return n;
+        }
+        // all the sites of the node if its farthest corner is within the smallest reach
+        dx = Math.max(b[o + 1] - px, px - b[o]);
+        dy = Math.max(b[o + 3] - py, py - b[o + 2]);
+        dz = Math.max(b[o + 5] - pz, pz - b[o + 4]);
+        if (dx * dx + dy * dy + dz * dz <= chord2(reachMin[node] * g)) {
+            for (int k = lo[node]; k < hi[node]; k++) {
+                out[n] = order[k];
+                n = n + 1;
+            }
+            return n;
+        }
+        if (2 * node + 1 < lo.length && lo[2 * node + 1] < hi[2 * node + 1]) {
+            n = visit(2 * node + 1, px, py, pz, g, out, n);
+            return visit(2 * node + 2, px, py, pz, g, out, n);
+        }
+        for (int k = lo[node]; k < hi[node]; k++) {
+            double ex = x[k] - px;
+            double ey = y[k] - py;
+            double ez = z[k] - pz;
+            if (ex * ex + ey * ey + ez * ez <= chord2(reach[k] * g)) {
+                out[n] = order[k];
+                n = n + 1;
+            }
+        }
+        return n;
+    }
+
+    private static double chord2(double a) {
+        // squared chord length on the unit sphere of the half angle a
+        if (a >= Math.PI / 2) {
+            return 4;
+        }
+        double c = 2 * Math.sin(a);
+        return c * c;
+    }
+
+    public int evaluate(double lat, double lon, double h2, double R2, P1546.ClutterEnvironment area, double hrter,
+                        double Emin, int[] out, double[] Lb) {
+        // n = index.evaluate(lat, lon, h2, R2, area, hrter, Emin, out, Lb)
+        //
+        // Basic transmission loss from the sites returned by query(lat, lon,
+        // Emin, out) to the victim receiver:
+        //
+        // lat, lon: deg       Position of the victim receiver
+        // h2:       m         Receiver antenna height above ground
+        // R2:       m         Representative clutter height around receiver
+        // area:               Receiver clutter environment
+        // hrter:    m         Terrain height at the receiver site
+        // Emin:     dB(uV/m)  Field strength below which a site is negligible
+        //
+        // Output variables:
+        //
+        // out:      indices of the n sites, in increasing order
+        // Lb:       dB        Lb[k] for the site out[k], or +Infinity if the site
+        //                     is culled by P1546FieldStrMixedBatchCulled
+        //
+        // The surviving sites are evaluated in one P1546FieldStrMixedBatchCulled
+        // call, without terrain clearance angles (tca, eff1, eff2 = 91). hb is
+        // the average over 0.2 d to d, so that it is derived from the terrain
+        // for each victim closer than 15 km to a site with pathinfo = 1, and
+        // used as heff for a land or mixed path (h1 = hb, equ'n (6)). Without
+        // terrain, hb is not available and h1 = heff.
+        if (Lb == null || Lb.length < sites.length) {
+            throw new RuntimeException("Output array Lb must have one element per site.");
+        }
+        int n = query(lat, lon, Emin, out);
+        if (n == 0) {
+            return 0;
+        }
+
+        double[] f = new double[n];
+        double[] t = new double[n];
+        double[] heff = new double[n];
+        double[] h2v = new double[n];
+        double[] R2v = new double[n];
+        P1546.ClutterEnvironment[] areav = new P1546.ClutterEnvironment[n];
+        int[] pathinfo = new int[n];
+        double[] q = new double[n];
+        double[] PTx = new double[n];
+        double[] ha = new double[n];
+        double[] hb = new double[n];
+        double[] R1 = new double[n];
+        double[] tca = new double[n];
+        double[] htter = new double[n];
+        double[] hrterv = new double[n];
+        double[] eff1 = new double[n];
+        double[] eff2 = new double[n];
+        double[] sigma_L = new double[n];
+        P1546.PathZones[] paths = new P1546.PathZones[n];
+        int[] zone_x = new int[n + 1];
+        for (int k = 0; k < n; k++) {
+            Site s = sites[out[k]];
+            f[k] = s.f;
+            t[k] = s.t;
+            heff[k] = s.heff;
+            h2v[k] = h2;
+            R2v[k] = R2;
+            areav[k] = area;
+            pathinfo[k] = s.pathinfo;
+            q[k] = s.q;
+            PTx[k] = s.PTx;
+            ha[k] = s.ha;
+            R1[k] = s.R1;
+            tca[k] = 91;
+            htter[k] = s.htter;
+            hrterv[k] = hrter;
+            eff1[k] = 91;
+            eff2[k] = 91;
+            sigma_L[k] = s.sigma_L;
+            paths[k] = mask == null
+                    ? new P1546.PathZones(new double[]{GreatCircle.distance(s.lat, s.lon, lat, lon)}, new byte[]{P1546.LAND})
+                    : mask.zones(s.lat, s.lon, lat, lon, step);
+            zone_x[k + 1] = zone_x[k] + paths[k].getZoneCount();
+            hb[k] = -10000;
+            if (terrain != null && s.pathinfo == 1 && paths[k].getDistance() < 15) {
+                hb[k] = terrain.inputs(s.lat, s.lon, s.ha, lat, lon, h2, step).getHb();
+            }
+            heff[k] = P1546.heff(s.heff, hb[k], s.pathinfo, paths[k]);
+        }
+        double[] d_v = new double[zone_x[n]];
+        byte[] zone_v = new byte[zone_x[n]];
+        for (int k = 0; k < n; k++) {
+            for (int ii = 0; ii < paths[k].getZoneCount(); ii++) {
+                d_v[zone_x[k] + ii] = paths[k].getZoneDistance(ii);
+                zone_v[zone_x[k] + ii] = paths[k].getZone(ii).code();
+            }
+        }
+
+        double[] L = new double[n];
+        calculator.P1546FieldStrMixedBatchCulled(Emin, f, t, heff, h2v, R2v, areav, d_v, zone_v, zone_x, pathinfo,
+                q, PTx, ha, hb, R1, tca, htter, hrterv, eff1, eff2, sigma_L, L);
+        System.arraycopy(L, 0, Lb, 0, n);
+        return n;
+    }
+}
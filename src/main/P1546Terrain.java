@@ -0,0 +1,640 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Recommendation ITU-R P.1546
+
+public final class P1546Terrain {
+    //
+    // Digital elevation model made of memory-mapped grid tiles, and the
+    // terrain-dependent input arguments of P1546FieldStrMixed derived from it
+    // (see inputs):
+    //
+    // heff:     m       Height of the transmitting/base antenna over the
+    //                   average terrain height between 3 and 15 km
+    // hb:       m       Height of the transmitting/base antenna over the
+    //                   average terrain height between 0.2d and d
+    // tca:      deg     Terrain clearance angle at the receiver/mobile over
+    //                   up to 16 km in the direction of the transmitter (Sec. 11)
+    // eff1:     deg     Clearance angle at the transmitter/base over up to
+    //                   15 km in the direction of the receiver (Sec. 4.3 a)
+    // eff2:     deg     Clearance angle at the receiver/mobile relative to
+    //                   the local horizontal (Sec. 11)
+    // htter:    m       Terrain height at the transmitter/base
+    // hrter:    m       Terrain height at the receiver/mobile
+    //
+    // The terrain heights are sampled along the great circle with bilinear
+    // interpolation and all the values are accumulated in a single pass over
+    // the profile. The clearance angles are elevation angles relative to the
+    // local horizontal at the antenna, without Earth curvature.
+    //
+    // Supported tiles:
+    //   SRTM .hgt files: square grids of 1201 x 1201 (3") or 3601 x 3601 (1")
+    //   big-endian int16 heights covering 1 x 1 deg, named after the
+    //   south-west corner (e.g. N46E007.hgt); voids (-32768) read as 0 m
+    //   raw grids: int16 or float32 heights in rows from north to south,
+    //   with the geometry given explicitly
+    //
+    // The tiles are read-only and the instance may be shared between threads.
+
+    public enum Format {
+        INT16,
+        FLOAT32
+    }
+
+    private static final short VOID = -32768;
+
+    private final Map<Integer, Tile[]> index = new HashMap<>();  // tiles overlapping each 1 x 1 deg cell
+
+    private P1546Terrain() {
+    }
+
+    public static P1546Terrain openHgt(Path... files) {
+        // terrain from SRTM .hgt tiles
+        P1546Terrain terrain = new P1546Terrain();
+        for (Path file : files) {
+            String name = file.getFileName().toString().toUpperCase();
+            if (!name.matches("[NS]\\d{2}[EW]\\d{3}\\.HGT")) {
+                throw new RuntimeException("Invalid .hgt file name " + file.getFileName() + ".");
+            }
+            int lat = Integer.parseInt(name.substring(1, 3)) * (name.charAt(0) == 'S' ? -1 : 1);
+            int lon = Integer.parseInt(name.substring(4, 7)) * (name.charAt(3) == 'W' ? -1 : 1);
+            MappedByteBuffer buf = map(file);
+            int n = (int) Math.round(Math.sqrt(buf.capacity() / 2.0));
+            if (2L * n * n != buf.capacity() || n < 2) {
+                throw new RuntimeException("Invalid .hgt file size " + file.getFileName() + ".");
+            }
+            buf.order(ByteOrder.BIG_ENDIAN);
+            terrain.add(new Tile(buf, Format.INT16, n, n, lat + 1, lon, 1.0 / (n - 1), 1.0 / (n - 1)));
+        }
+        return terrain;
+    }
+
+    public static P1546Terrain openRaw(Path file, Format format, ByteOrder order, int rows, int cols,
+                                       double latNorth, double lonWest, double dlat, double dlon) {
+        // terrain from one raw grid of rows x cols heights, the first one at
+        // (latNorth, lonWest), spaced by dlat and dlon deg
+        P1546Terrain terrain = new P1546Terrain();
+        terrain.addRaw(file, format, order, rows, cols, latNorth, lonWest, dlat, dlon);
+        return terrain;
+    }
+
+    public P1546Terrain addRaw(Path file, Format format, ByteOrder order, int rows, int cols,
+                               double latNorth, double lonWest, double dlat, double dlon) {
+        // adds a raw grid tile (see openRaw)
+        if (rows < 2 || cols < 2 || !(dlat > 0) || !(dlon > 0)) {
+            throw new RuntimeException("Invalid raw grid geometry.");
+        }
+        MappedByteBuffer buf = map(file);
+        long size = (long) rows * cols * (format == Format.INT16 ? 2 : 4);
+        if (buf.capacity() != size) {
+            throw new RuntimeException("Invalid raw grid file size " + file.getFileName() + ".");
+        }
+        buf.order(order);
+        add(new Tile(buf, format, rows, cols, latNorth, lonWest, dlat, dlon));
+        return this;
+    }
+
+    private static MappedByteBuffer map(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new RuntimeException("Terrain file " + file.getFileName() + " is larger than 2 GB.");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new RuntimeException("Terrain file " + file.getFileName() + " cannot be read.", e);
+        }
+    }
+
+    private void add(Tile tile) {
+        for (int lat = (int) Math.floor(tile.latSouth); lat <= (int) Math.floor(tile.latNorth); lat++) {
+            for (int lon = (int) Math.floor(tile.lonWest); lon <= (int) Math.floor(tile.lonEast); lon++) {
+                Integer key = key(lat, lon);
+                Tile[] cell = index.get(key);
+                Tile[] next = new Tile[cell == null ? 1 : cell.length + 1];
+                if (cell != null) {
+                    System.arraycopy(cell, 0, next, 0, cell.length);
+                }
+                next[next.length - 1] = tile;
+                index.put(key, next);
+            }
+        }
+    }
+
+    private static Integer key(int lat, int lon) {
+        return (lat + 90) * 360 + Math.floorMod(lon + 180, 360);
+    }
+
+    private static final class Tile {
+        final MappedByteBuffer buf;
+        final Format format;
+        final int rows;
+        final int cols;
+        final double latNorth;
+        final double latSouth;
+        final double lonWest;
+        final double lonEast;
+        final double dlat;
+        final double dlon;
+
+        Tile(MappedByteBuffer buf, Format format, int rows, int cols, double latNorth, double lonWest, double dlat, double dlon) {
+            this.buf = buf;
+            this.format = format;
+            this.rows = rows;
+            this.cols = cols;
+            this.latNorth = latNorth;
+            this.latSouth = latNorth - (rows - 1) * dlat;
+            this.lonWest = lonWest;
+            this.lonEast = lonWest + (cols - 1) * dlon;
+            this.dlat = dlat;
+            this.dlon = dlon;
+        }
+
+        boolean contains(double lat, double lon) {
+            return lat >= latSouth && lat <= latNorth && lon >= lonWest && lon <= lonEast;
+        }
+
+        double sample(int row, int col) {
+            int i = row * cols + col;
+            if (format == Format.INT16) {
+                short h = buf.getShort(2 * i);
+                return h == VOID ? 0 : h;
+            }
+            return buf.getFloat(4 * i);
+        }
+
+        double height(double lat, double lon) {
+            // bilinear interpolation between the four surrounding samples
+            double y = (latNorth - lat) / dlat;
+            double x = (lon - lonWest) / dlon;
+            int row = Math.min((int) y, rows - 2);
+            int col = Math.min((int) x, cols - 2);
+            double wy = y - row;
+            double wx = x - col;
+            double h00 = sample(row, col);
+            double h01 = sample(row, col + 1);
+            double h10 = sample(row + 1, col);
+            double h11 = sample(row + 1, col + 1);
+            return (h00 * (1 - wx) + h01 * wx) * (1 - wy) + (h10 * (1 - wx) + h11 * wx) * wy;
+        }
+    }
+
+    private Tile tile(double lat, double lon, Tile hint) {
+        if (hint != null && hint.contains(lat, lon)) {
+            return hint;
+        }
+        Tile[] cell = index.get(key((int) Math.floor(lat), (int) Math.floor(lon)));
+        if (cell != null) {
+            for (Tile tile : cell) {
+                if (tile.contains(lat, lon)) {
+                    return tile;
+                }
+            }
+        }
+        throw new RuntimeException("No terrain data at lat = " + lat + ", lon = " + lon + ".");
+    }
+
+    public double height(double lat, double lon) {
+        // terrain height (m) at (lat, lon) deg
+        lon = GreatCircle.normalizeLongitude(lon);
+        return tile(lat, lon, null).height(lat, lon);
+    }
+
+    public static final class PathInputs {
+        // Terrain-dependent input arguments of P1546FieldStrMixed for one path
+        // (see P1546Terrain)
+
+        private final double d;
+        private final double heff;
+        private final double hb;
+        private final double tca;
+        private final double eff1;
+        private final double eff2;
+        private final double htter;
+        private final double hrter;
+
+        PathInputs(double d, double heff, double hb, double tca, double eff1, double eff2, double htter, double hrter) {
+            this.d = d;
+            this.heff = heff;
+            this.hb = hb;
+            this.tca = tca;
+            this.eff1 = eff1;
+            this.eff2 = eff2;
+            this.htter = htter;
+            this.hrter = hrter;
+        }
+
+        public double getDistance() {
+            return d;
+        }
+
+        public double getEffectiveHeight() {
+            return heff;
+        }
+
+        public double getHb() {
+            // -10000 if there is no terrain sample between 0.2d and d
+            return hb;
+        }
+
+        public double getTca() {
+            return tca;
+        }
+
+        public double getEff1() {
+            return eff1;
+        }
+
+        public double getEff2() {
+            return eff2;
+        }
+
+        public double getHtter() {
+            return htter;
+        }
+
+        public double getHrter() {
+            return hrter;
+        }
+    }
+
+    public PathInputs inputs(double txLat, double txLon, double ha, double rxLat, double rxLon, double h2, double step) {
+        // inputs = terrain.inputs(txLat, txLon, ha, rxLat, rxLon, h2, step)
+        //
+        // txLat, txLon: deg  transmitter/base position
+        // ha:           m    transmitting/base antenna height above ground
+        // rxLat, rxLon: deg  receiver/mobile position
+        // h2:           m    receiving/mobile antenna height above ground
+        // step:         km   spacing of the profile samples
+        //
+        // The profile runs from the transmitter to max(d, 15 km) in the
+        // direction of the receiver, so that heff is defined for d < 15 km.
+
+        if (!(step > 0)) {
+            throw new RuntimeException("The profile step must be positive.");
+        }
+        GreatCircle.Path path = new GreatCircle.Path(txLat, txLon, rxLat, rxLon);
+        double d = path.getDistance();
+        if (!(d > 0)) {
+            throw new RuntimeException("The transmitter and receiver positions coincide.");
+        }
+        double[] p = new double[2];
+
+        Tile tile = tile(txLat, GreatCircle.normalizeLongitude(txLon), null);
+        double htter = tile.height(txLat, GreatCircle.normalizeLongitude(txLon));
+        tile = tile(rxLat, GreatCircle.normalizeLongitude(rxLon), tile);
+        double hrter = tile.height(rxLat, GreatCircle.normalizeLongitude(rxLon));
+        double htx = htter + ha;
+        double hrx = hrter + h2;
+
+        double ext = Math.max(d, 15);
+        int n = (int) Math.ceil(ext / step);
+        double sum315 = 0;
+        int n315 = 0;
+        double sumb = 0;
+        int nb = 0;
+        double tan1 = Double.NEGATIVE_INFINITY;   // largest elevation tangent from the transmitter
+        double tan2 = Double.NEGATIVE_INFINITY;   // largest elevation tangent from the receiver
+
+        for (int k = 1; k <= n; k++) {
+            double x = Math.min(k * step, ext);
+            path.point(x, p);
+            tile = tile(p[0], p[1], tile);
+            double h = tile.height(p[0], p[1]);
+
+            if (x >= 3 && x <= 15) {
+                sum315 = sum315 + h;
+                n315 = n315 + 1;
+            }
+            if (x >= 0.2 * d && x <= d) {
+                sumb = sumb + h;
+                nb = nb + 1;
+            }
+            if (x <= Math.min(15, d)) {
+                tan1 = Math.max(tan1, (h - htx) / (1000 * x));
+            }
+            if (x < d && d - x <= 16) {
+                tan2 = Math.max(tan2, (h - hrx) / (1000 * (d - x)));
+            }
+        }
+        if (d <= 16) {
+            tan2 = Math.max(tan2, (htter - hrx) / (1000 * d));   // not beyond the transmitter
+        }
+
+        double heff = htx - sum315 / n315;
+        double hb = nb > 0 ? htx - sumb / nb : -10000;
+        double eff1 = tan1 == Double.NEGATIVE_INFINITY ? 91 : Math.toDegrees(Math.atan(tan1));
+        double eff2 = tan2 == Double.NEGATIVE_INFINITY ? 91 : Math.toDegrees(Math.atan(tan2));
+        return new PathInputs(d, heff, hb, eff2, eff1, eff2, htter, hrter);
+    }
+
+    public static final class RadialInputs {
+        // Terrain-dependent input arguments of P1546FieldStrMixed for the
+        // receivers/mobiles at the distances k*step, k = 1..n, along one radial
+        // from the transmitter/base (see radialInputs)
+
+        private final double step;
+        private final double heff;
+        private final double htter;
+        private final double[] hb;
+        private final double[] eff1;
+        private final double[] eff2;
+        private final double[] hrter;
+
+        RadialInputs(double step, double heff, double htter, double[] hb, double[] eff1, double[] eff2, double[] hrter) {
+            this.step = step;
+            this.heff = heff;
+            this.htter = htter;
+            this.hb = hb;
+            this.eff1 = eff1;
+            this.eff2 = eff2;
+            this.hrter = hrter;
+        }
+
+        public int getCount() {
+            return hb.length - 1;
+        }
+
+        public double getDistance(int k) {
+            return k * step;
+        }
+
+        public double getEffectiveHeight() {
+            return heff;
+        }
+
+        public double getHtter() {
+            return htter;
+        }
+
+        public double getHb(int k) {
+            return hb[k];
+        }
+
+        public double getTca(int k) {
+            return eff2[k];
+        }
+
+        public double getEff1(int k) {
+            return eff1[k];
+        }
+
+        public double getEff2(int k) {
+            return eff2[k];
+        }
+
+        public double getHrter(int k) {
+            return hrter[k];
+        }
+    }
+
+    public RadialInputs radialInputs(double txLat, double txLon, double ha, double bearing, double h2, double step, int n) {
+        // inputs = terrain.radialInputs(txLat, txLon, ha, bearing, h2, step, n)
+        //
+        // txLat, txLon: deg  transmitter/base position
+        // ha:           m    transmitting/base antenna height above ground
+        // bearing:      deg  initial bearing of the radial
+        // h2:           m    receiving/mobile antenna height above ground
+        // step:         km   spacing of the profile samples and of the receivers
+        // n:                 number of receivers, at the distances k*step
+        //
+        // Same as inputs for each receiver along the radial, from a single
+        // pass over the profile: hb from prefix sums of the terrain height,
+        // eff1 from the running maximum elevation seen from the transmitter,
+        // and tca/eff2 from the horizon over the last 16 km seen from each
+        // receiver (see Horizon), in amortised O(log(16/step)) per receiver.
+
+        if (!(step > 0)) {
+            throw new RuntimeException("The profile step must be positive.");
+        }
+        if (n < 1) {
+            throw new RuntimeException("The radial must have at least one receiver.");
+        }
+        GreatCircle.Path path = new GreatCircle.Path(txLat, txLon, bearing);
+        double[] p = new double[2];
+        Tile tile = tile(txLat, GreatCircle.normalizeLongitude(txLon), null);
+        double htter = tile.height(txLat, GreatCircle.normalizeLongitude(txLon));
+        double htx = htter + ha;
+
+        // terrain profile up to max(d, 15 km), h[0] at the transmitter
+        int m = Math.max(n, (int) Math.ceil(15 / step));
+        double[] h = new double[m + 1];
+        h[0] = htter;
+        double sum315 = 0;
+        int n315 = 0;
+        for (int j = 1; j <= m; j++) {
+            double x = j * step;
+            path.point(x, p);
+            tile = tile(p[0], p[1], tile);
+            h[j] = tile.height(p[0], p[1]);
+            if (x >= 3 && x <= 15) {
+                sum315 = sum315 + h[j];
+                n315 = n315 + 1;
+            }
+        }
+        double heff = htx - sum315 / n315;
+
+        double[] hb = new double[n + 1];
+        double[] eff1 = new double[n + 1];
+        double[] eff2 = new double[n + 1];
+        double[] hrter = new double[n + 1];
+        hb[0] = eff1[0] = eff2[0] = hrter[0] = Double.NaN;
+
+        double[] sum = new double[n + 1];   // sum[j] = h[1] + ... + h[j]
+        int jb = 1;                         // first sample at x >= 0.2d
+        double tan1 = Double.NEGATIVE_INFINITY;
+        Horizon horizon = new Horizon((int) Math.ceil(16 / step) + 2);
+        horizon.push(0, htter);             // transmitter, within 16 km of the first receivers
+        int jw = 0;                         // first sample in the horizon
+
+        for (int k = 1; k <= n; k++) {
+            double d = k * step;
+            double hrx = h[k] + h2;
+            sum[k] = sum[k - 1] + h[k];
+
+            while (jb * step < 0.2 * d) {
+                jb = jb + 1;
+            }
+            hb[k] = htx - (sum[k] - sum[jb - 1]) / (k - jb + 1);
+
+            if (d <= 15) {
+                tan1 = Math.max(tan1, (h[k] - htx) / (1000 * d));
+            }
+            eff1[k] = tan1 == Double.NEGATIVE_INFINITY ? 91 : Math.toDegrees(Math.atan(tan1));
+
+            // samples 0 < d - x <= 16 seen from the receiver
+            if (k > 1) {
+                horizon.push((k - 1) * step, h[k - 1]);
+            }
+            while (jw < k && d - jw * step > 16) {
+                horizon.pop();
+                jw = jw + 1;
+            }
+            double tan2 = horizon.isEmpty() ? Double.NEGATIVE_INFINITY : horizon.maxTangent(d, hrx);
+            eff2[k] = tan2 == Double.NEGATIVE_INFINITY ? 91 : Math.toDegrees(Math.atan(tan2));
+            hrter[k] = h[k];
+        }
+        return new RadialInputs(step, heff, htter, hb, eff1, eff2, hrter);
+    }
+
+    static final class Horizon {
+        // Sliding window of profile samples (x km, h m) in increasing x, and
+        // the largest elevation tangent (h - y)/(1000*(D - x)) seen from a
+        // point (D, y) beyond the last sample. The largest tangent is found on
+        // the upper convex hull of the samples by binary search, since along
+        // the hull the tangent increases up to the tangent point and then
+        // decreases.
+        //
+        // The window is a queue made of two stacks. Samples are pushed to the
+        // back, where the hull is extended as in the monotone chain algorithm.
+        // When the front is empty and a sample leaves the window, all the back
+        // samples move to the front: they are inserted from the last one to
+        // the first one into the hull of the front, recording the overwritten
+        // vertex of each insertion, so that removing the first sample undoes
+        // its insertion in O(1). Each sample is pushed, moved and removed
+        // once, in O(log w) for a window of w samples.
+
+        private double[] bx, bh;     // back samples
+        private int nb;
+        private int[] bhull;         // back hull, indices into bx, bh
+        private int nbhull;
+        private double[] fx, fh;     // front hull, the last sample of the window first
+        private int nf;              // size of the front hull
+        private int[] undoSize;      // per front sample: hull size before its insertion,
+        private double[] undoX;      // and the vertex overwritten by it
+        private double[] undoH;
+        private int nundo;           // number of front samples
+
+        Horizon(int capacity) {
+            bx = new double[capacity];
+            bh = new double[capacity];
+            bhull = new int[capacity];
+            fx = new double[capacity];
+            fh = new double[capacity];
+            undoSize = new int[capacity];
+            undoX = new double[capacity];
+            undoH = new double[capacity];
+        }
+
+        boolean isEmpty() {
+            return nb + nundo == 0;
+        }
+
+        private static boolean above(double x0, double h0, double x1, double h1, double x2, double h2) {
+            // (x1, h1) strictly above the segment from (x0, h0) to (x2, h2)
+            return (h1 - h0) * (x2 - x0) > (h2 - h0) * (x1 - x0);
+        }
+
+        void push(double x, double h) {
+            if (nb == bx.length) {
+                bx = Arrays.copyOf(bx, 2 * nb);
+                bh = Arrays.copyOf(bh, 2 * nb);
+                bhull = Arrays.copyOf(bhull, 2 * nb);
+            }
+            bx[nb] = x;
+            bh[nb] = h;
+            while (nbhull >= 2 && !above(bx[bhull[nbhull - 2]], bh[bhull[nbhull - 2]],
+                    bx[bhull[nbhull - 1]], bh[bhull[nbhull - 1]], x, h)) {
+                nbhull = nbhull - 1;
+            }
+            bhull[nbhull] = nb;
+            nbhull = nbhull + 1;
+            nb = nb + 1;
+        }
+
+        void pop() {
+            // removes the first sample of the window
+            if (nundo == 0) {
+                if (fx.length < nb) {
+                    fx = new double[nb];
+                    fh = new double[nb];
+                    undoSize = new int[nb];
+                    undoX = new double[nb];
+                    undoH = new double[nb];
+                }
+                nf = 0;
+                for (int i = nb - 1; i >= 0; i--) {
+                    insertFront(bx[i], bh[i]);
+                }
+                nb = 0;
+                nbhull = 0;
+            }
+            nundo = nundo - 1;
+            int m = undoSize[nundo];
+            int pos = nf - 1;
+            fx[pos] = undoX[nundo];
+            fh[pos] = undoH[nundo];
+            nf = m;
+        }
+
+        private void insertFront(double x, double h) {
+            // the front hull keeps the vertices 0..m-1 which are still above
+            // the segment from (x, h) to the previous vertex
+            int lo = 1;
+            int hi = nf;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (above(x, h, fx[mid], fh[mid], fx[mid - 1], fh[mid - 1])) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            int m = Math.min(lo, nf);
+            undoSize[nundo] = nf;
+            undoX[nundo] = fx[m];
+            undoH[nundo] = fh[m];
+            nundo = nundo + 1;
+            fx[m] = x;
+            fh[m] = h;
+            nf = m + 1;
+        }
+
+        double maxTangent(double D, double y) {
+            double best = Double.NEGATIVE_INFINITY;
+            if (nbhull > 0) {
+                // first back hull vertex i not below the viewpoint ray over edge i, i+1
+                int lo = 0;
+                int hi = nbhull - 1;
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    int a = bhull[mid];
+                    int b = bhull[mid + 1];
+                    if (tangent(bx[b], bh[b], D, y) > tangent(bx[a], bh[a], D, y)) {
+                        lo = mid + 1;
+                    } else {
+                        hi = mid;
+                    }
+                }
+                best = tangent(bx[bhull[lo]], bh[bhull[lo]], D, y);
+            }
+            if (nf > 0) {
+                // the front hull runs from the last sample (0) to the first one (nf-1)
+                int lo = 0;
+                int hi = nf - 1;
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (tangent(fx[mid + 1], fh[mid + 1], D, y) > tangent(fx[mid], fh[mid], D, y)) {
+                        lo = mid + 1;
+                    } else {
+                        hi = mid;
+                    }
+                }
+                best = Math.max(best, tangent(fx[lo], fh[lo], D, y));
+            }
+            return best;
+        }
+
+        private static double tangent(double x, double h, double D, double y) {
+            return (h - y) / (1000 * (D - x));
+        }
+    }
+}
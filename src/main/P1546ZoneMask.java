@@ -0,0 +1,201 @@
+package main;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Recommendation ITU-R P.1546
+
+public final class P1546ZoneMask {
+    //
+    // Memory-mapped raster of path zone types, and the path zones of
+    // P1546FieldStrMixed (d_v, path_c as a P1546.PathZones) derived from it by
+    // marching along the great circle from the transmitter/base.
+    //
+    // The raster is a grid of rows x cols bytes in rows from north to south,
+    // each one a zone code (P1546.LAND = 1, P1546.WARM = 2, P1546.COLD = 3).
+    // Sample (row, col) is located at (latNorth - row*dlat, lonWest + col*dlon)
+    // and the zone at any point is that of the nearest sample.
+    //
+    // A path of length d is divided into segments of length step (the last
+    // one shorter), each one of the zone found at its midpoint, and equal
+    // consecutive zones are merged into one zone of d_v. The midpoint of a
+    // shorter last segment is the one of the part [(n-1)*step, d] up to the
+    // receiver, so that its zone never comes from beyond the receiver; a d
+    // within 1e-9 step of a multiple of step counts as that multiple. The
+    // receivers along one radial share the full segments closer to the
+    // transmitter: a Radial marches each one once and returns the zones up to
+    // any distance by cutting its list of zones, instead of marching again
+    // from the transmitter.
+    //
+    // The raster is read-only and the instance may be shared between threads;
+    // a Radial is not thread-safe.
+
+    private final MappedByteBuffer buf;
+    private final int rows;
+    private final int cols;
+    private final double latNorth;
+    private final double lonWest;
+    private final double dlat;
+    private final double dlon;
+
+    private P1546ZoneMask(MappedByteBuffer buf, int rows, int cols, double latNorth, double lonWest, double dlat, double dlon) {
+        this.buf = buf;
+        this.rows = rows;
+        this.cols = cols;
+        this.latNorth = latNorth;
+        this.lonWest = lonWest;
+        this.dlat = dlat;
+        this.dlon = dlon;
+    }
+
+    public static P1546ZoneMask open(Path file, int rows, int cols, double latNorth, double lonWest, double dlat, double dlon) {
+        // zone mask from one raster of rows x cols zone codes, the first one
+        // at (latNorth, lonWest), spaced by dlat and dlon deg
+        if (rows < 1 || cols < 1 || !(dlat > 0) || !(dlon > 0)) {
+            throw new RuntimeException("Invalid zone mask geometry.");
+        }
+        MappedByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != (long) rows * cols) {
+                throw new RuntimeException("Invalid zone mask file size " + file.getFileName() + ".");
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new RuntimeException("Zone mask file " + file.getFileName() + " cannot be read.", e);
+        }
+        return new P1546ZoneMask(buf, rows, cols, latNorth, lonWest, dlat, dlon);
+    }
+
+    public byte zone(double lat, double lon) {
+        // zone code at (lat, lon) deg
+        int row = (int) Math.floor((latNorth - lat) / dlat + 0.5);
+        double x = GreatCircle.normalizeLongitude(lon - lonWest);
+        if (x < -0.5 * dlon) {
+            x = x + 360;
+        }
+        int col = (int) Math.floor(x / dlon + 0.5);
+        if (row < 0 || row >= rows || col >= cols) {
+            throw new RuntimeException("No zone mask data at lat = " + lat + ", lon = " + lon + ".");
+        }
+        byte code = buf.get(row * cols + col);
+        if (code != P1546.LAND && code != P1546.WARM && code != P1546.COLD) {
+            throw new RuntimeException("Invalid zone code " + code + " at lat = " + lat + ", lon = " + lon + ".");
+        }
+        return code;
+    }
+
+    public P1546.PathZones zones(double txLat, double txLon, double rxLat, double rxLon, double step) {
+        // path = mask.zones(txLat, txLon, rxLat, rxLon, step)
+        //
+        // txLat, txLon: deg  transmitter/base position
+        // rxLat, rxLon: deg  receiver/mobile position
+        // step:         km   length of the segments
+        double d = GreatCircle.distance(txLat, txLon, rxLat, rxLon);
+        return radial(txLat, txLon, GreatCircle.bearing(txLat, txLon, rxLat, rxLon), step).zones(d);
+    }
+
+    public Radial radial(double txLat, double txLon, double bearing, double step) {
+        // radial from the transmitter/base at (txLat, txLon) deg along the
+        // initial bearing (deg), marched in segments of length step (km)
+        if (!(step > 0)) {
+            throw new RuntimeException("The segment length must be positive.");
+        }
+        return new Radial(new GreatCircle.Path(txLat, txLon, bearing), step);
+    }
+
+    public final class Radial {
+        // Zones along one radial, extended as receivers farther away are
+        // requested. The zones are kept as runs of equal segments: run i
+        // covers the segments end[i-1] .. end[i]-1 with the zone code[i].
+
+        private final GreatCircle.Path path;
+        private final double step;
+        private final double[] p = new double[2];
+        private byte[] code = new byte[8];
+        private int[] end = new int[8];
+        private int nruns = 0;
+        private int nseg = 0;   // number of segments marched
+
+        private Radial(GreatCircle.Path path, double step) {
+            this.path = path;
+            this.step = step;
+        }
+
+        private void march(int n) {
+            // marches the segments nseg .. n-1
+            for (int k = nseg; k < n; k++) {
+                path.point((k + 0.5) * step, p);
+                byte z = zone(p[0], p[1]);
+                if (nruns > 0 && code[nruns - 1] == z) {
+                    end[nruns - 1] = k + 1;
+                } else {
+                    if (nruns == code.length) {
+                        code = Arrays.copyOf(code, 2 * nruns);
+                        end = Arrays.copyOf(end, 2 * nruns);
+                    }
+                    code[nruns] = z;
+                    end[nruns] = k + 1;
+                    nruns = nruns + 1;
+                }
+            }
+            nseg = Math.max(nseg, n);
+        }
+
+        public P1546.PathZones zones(double d) {
+            // path zones from the transmitter/base up to the distance d (km)
+            if (!(d > 0)) {
+                throw new RuntimeException("The path length must be positive.");
+            }
+            int n = Math.max(1, (int) Math.ceil(d / step - 1e-9));
+            double last = d - (n - 1) * step;       // length of the last segment
+            boolean partial = last < step * (1 - 1e-9);
+            int full = partial ? n - 1 : n;         // full segments, shared along the radial
+            march(full);
+
+            // the run containing the last full segment full-1
+            int runs = 0;
+            if (full > 0) {
+                int lo = 0;
+                int hi = nruns - 1;
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (end[mid] >= full) {
+                        hi = mid;
+                    } else {
+                        lo = mid + 1;
+                    }
+                }
+                runs = lo + 1;
+            }
+
+            // zone of the last, partial segment at the midpoint of its part
+            // up to the receiver, merged into the last run if equal
+            byte zlast = 0;
+            if (partial) {
+                path.point((n - 1) * step + 0.5 * last, p);
+                zlast = zone(p[0], p[1]);
+            }
+            boolean extra = partial && (runs == 0 || code[runs - 1] != zlast);
+            int NN = runs + (extra ? 1 : 0);
+            double[] d_v = new double[NN];
+            byte[] zone_v = new byte[NN];
+            for (int ii = 0; ii < runs; ii++) {
+                d_v[ii] = (Math.min(end[ii], full) - (ii == 0 ? 0 : end[ii - 1])) * step;
+                zone_v[ii] = code[ii];
+            }
+            int start;                              // first segment of the last zone
+            if (extra) {
+                start = full;
+                zone_v[NN - 1] = zlast;
+            } else {
+                start = runs == 1 ? 0 : end[runs - 2];
+            }
+            d_v[NN - 1] = d - start * step;
+            return new P1546.PathZones(d_v, zone_v);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package test;
+
+import main.P1546;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class P1546AllocationTest {
+    // the evaluations using a caller-owned P1546.Workspace must not allocate any
+    // memory once warmed up; the memory allocated by the current thread is
+    // measured with com.sun.management.ThreadMXBean
+
+    private static final int WARMUP = 20000;
+    private static final int CALLS = 10000;
+
+    private com.sun.management.ThreadMXBean threads;
+
+    @Before
+    public void setup() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private long bytesPerCall(Runnable evaluation) {
+        for (int i = 0; i < WARMUP; i++) {
+            evaluation.run();
+        }
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < CALLS; i++) {
+            evaluation.run();
+        }
+        long after = threads.getThreadAllocatedBytes(id);
+        return (after - before) / CALLS;
+    }
+
+    @Test
+    public void testMixedPath() {
+        final P1546 calculator = new P1546();
+        final P1546.Workspace ws = new P1546.Workspace();
+        final P1546.PathZones path = new P1546.PathZones(new double[]{20, 35.5, 12}, new String[]{"Land", "Warm", "Land"});
+        final double[] result = new double[1];
+
+        long bytes = bytesPerCall(new Runnable() {
+            public void run() {
+                result[0] += calculator.P1546FieldStrMixed(900, 20, 150, 1.5, 15, P1546.ClutterEnvironment.URBAN, path, 1,
+                        90, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, ws);
+            }
+        });
+
+        Assert.assertEquals(0, bytes);
+    }
+
+    @Test
+    public void testShortPathLowAntenna() {
+        // d < 1 km and h1 < 10 m (Steps 8.2 and 17)
+        final P1546 calculator = new P1546();
+        final P1546.Workspace ws = new P1546.Workspace();
+        final P1546.PathZones path = new P1546.PathZones(new double[]{0.5}, new String[]{"Land"});
+        final double[] result = new double[1];
+
+        long bytes = bytesPerCall(new Runnable() {
+            public void run() {
+                result[0] += calculator.P1546FieldStrMixed(600, 10, 5, 10, 15, P1546.ClutterEnvironment.SUBURBAN, path, 0,
+                        50, 1, 5, -10000, -1, 91, 10, 20, 91, 91, 0, ws);
+            }
+        });
+
+        Assert.assertEquals(0, bytes);
+    }
+
+    @Test
+    public void testSeaPath() {
+        final P1546 calculator = new P1546();
+        final P1546.Workspace ws = new P1546.Workspace();
+        final double[] result = new double[1];
+
+        long bytes = bytesPerCall(new Runnable() {
+            public void run() {
+                result[0] += calculator.step6_10(5, 80, 20, 3, 15, 100, ws);
+            }
+        });
+
+        Assert.assertEquals(0, bytes);
+    }
+
+    @Test
+    public void testCompiledFrequency() {
+        final P1546 calculator = new P1546();
+        final P1546.Workspace ws = new P1546.Workspace();
+        final P1546.FrequencyTables ft = calculator.compileFrequency(750);
+        final P1546.PathZones path = new P1546.PathZones(new double[]{35}, new String[]{"Land"});
+        final double[] result = new double[1];
+
+        long bytes = bytesPerCall(new Runnable() {
+            public void run() {
+                result[0] += calculator.P1546FieldStrMixed(ft, 10, 150, 10, 10, P1546.ClutterEnvironment.RURAL, path, 0,
+                        50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, ws);
+            }
+        });
+
+        Assert.assertEquals(0, bytes);
+    }
+
+    @Test
+    public void testTransmitterCurves() {
+        final P1546 calculator = new P1546();
+        final P1546.Workspace ws = new P1546.Workspace();
+        final P1546.TransmitterCurves tc = calculator.transmitterCurves(750, 10, 150);
+        final P1546.PathZones path = new P1546.PathZones(new double[]{20, 35}, new String[]{"Land", "Warm"});
+        final double[] result = new double[1];
+
+        long bytes = bytesPerCall(new Runnable() {
+            public void run() {
+                result[0] += calculator.P1546FieldStrMixed(tc, 10, 10, P1546.ClutterEnvironment.RURAL, path, 0,
+                        50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, ws);
+            }
+        });
+
+        Assert.assertEquals(0, bytes);
+    }
+}
@@ -0,0 +1,149 @@
+package test;
+
+import main.P1546;
+import main.P1546Cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class P1546ConcurrencyTest {
+    // one P1546 shared by many threads gives results which are bit-identical
+    // to the ones of a single-threaded evaluation: each thread evaluates all
+    // the links several times, starting at a different link, with its own
+    // Workspace, with the overloads allocating one, from the shared
+    // FrequencyTables and in batches
+
+    private static final int LINKS = 400;
+    private static final int THREADS = 32;
+    private static final int ROUNDS = 3;
+
+    private RandomLinks links;
+    private P1546.PathZones[] path;
+
+    @Before
+    public void setup() {
+        links = new RandomLinks(24, LINKS, false);
+        path = new P1546.PathZones[LINKS];
+        for (int i = 0; i < LINKS; i++) {
+            path[i] = links.path(i);
+        }
+    }
+
+    private double evaluate(P1546 calculator, int i, P1546.Workspace ws) {
+        RandomLinks l = links;
+        if (ws == null) {
+            return calculator.P1546FieldStrMixed(l.f[i], l.t[i], l.heff[i], l.h2[i], l.R2[i], l.area[i], path[i], l.pathinfo[i],
+                    l.q[i], l.PTx[i], l.ha[i], l.hb[i], l.R1[i], l.tca[i], l.htter[i], l.hrter[i], l.eff1[i], l.eff2[i], l.sigmaL[i]);
+        }
+        return calculator.P1546FieldStrMixed(l.f[i], l.t[i], l.heff[i], l.h2[i], l.R2[i], l.area[i], path[i], l.pathinfo[i],
+                l.q[i], l.PTx[i], l.ha[i], l.hb[i], l.R1[i], l.tca[i], l.htter[i], l.hrter[i], l.eff1[i], l.eff2[i], l.sigmaL[i], ws);
+    }
+
+    private double evaluate(P1546 calculator, P1546.FrequencyTables ft, int i, P1546.Workspace ws) {
+        RandomLinks l = links;
+        return calculator.P1546FieldStrMixed(ft, l.t[i], l.heff[i], l.h2[i], l.R2[i], l.area[i], path[i], l.pathinfo[i],
+                l.q[i], l.PTx[i], l.ha[i], l.hb[i], l.R1[i], l.tca[i], l.htter[i], l.hrter[i], l.eff1[i], l.eff2[i], l.sigmaL[i], ws);
+    }
+
+    private void hammer(final P1546 calculator, final P1546.FrequencyTables ft, final double[] expected,
+                        final double[] expectedFt) throws Exception {
+        // THREADS tasks released at the same time, each one comparing all
+        // its results to the single-threaded ones bit for bit
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int k = 0; k < THREADS; k++) {
+                final int task = k;
+                futures.add(executor.submit(new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        P1546.Workspace ws = new P1546.Workspace();
+                        double[] Lb = new double[LINKS];
+                        int mismatches = 0;
+                        start.await();
+                        for (int r = 0; r < ROUNDS; r++) {
+                            for (int j = 0; j < LINKS; j++) {
+                                int i = (j + task * LINKS / THREADS) % LINKS;
+                                double L;
+                                double Lexpected = expected[i];
+                                if (task % 4 == 0) {
+                                    L = evaluate(calculator, i, ws);
+                                } else if (task % 4 == 1) {
+                                    L = evaluate(calculator, i, null);
+                                } else if (task % 4 == 2) {
+                                    L = evaluate(calculator, ft, i, ws);
+                                    Lexpected = expectedFt[i];
+                                } else {
+                                    if (j == 0) {
+                                        links.batch(calculator, Lb);
+                                    }
+                                    L = Lb[i];
+                                }
+                                if (Double.doubleToRawLongBits(L) != Double.doubleToRawLongBits(Lexpected)) {
+                                    mismatches = mismatches + 1;
+                                }
+                            }
+                        }
+                        return mismatches;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                Assert.assertEquals(0, future.get().intValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void run(P1546 calculator) throws Exception {
+        // single-threaded reference with a fresh calculator, then the shared one
+        P1546 reference = new P1546();
+        P1546.Workspace ws = new P1546.Workspace();
+        P1546.FrequencyTables ft = calculator.compileFrequency(links.f[0]);
+        double[] expected = new double[LINKS];
+        double[] expectedFt = new double[LINKS];
+        double[] Lb = new double[LINKS];
+        P1546.FrequencyTables ftReference = reference.compileFrequency(links.f[0]);
+        for (int i = 0; i < LINKS; i++) {
+            expected[i] = evaluate(reference, i, ws);
+            expectedFt[i] = evaluate(reference, ftReference, i, ws);
+        }
+        links.batch(reference, Lb);
+        for (int i = 0; i < LINKS; i++) {
+            Assert.assertEquals(Double.doubleToRawLongBits(expected[i]), Double.doubleToRawLongBits(Lb[i]));
+        }
+        hammer(calculator, ft, expected, expectedFt);
+    }
+
+    @Test
+    public void testSharedCalculator() throws Exception {
+        run(new P1546());
+    }
+
+    @Test
+    public void testSharedCalculatorWithCache() throws Exception {
+        // without quantisation the cache gives the results obtained without it,
+        // also while its segments are filled and evicted concurrently
+        run(new P1546(new P1546Cache(LINKS)));
+    }
+
+    @Test
+    public void testFrozenTables() {
+        // the nominal values are handed out as copies
+        double[] distance = P1546.tabIndex(2);
+        distance[0] = 1000;
+        Assert.assertEquals(1, P1546.tabIndex(2)[0], 0);
+        Assert.assertEquals(78, P1546.tabIndex(2).length);
+    }
+}
@@ -1,10 +1,32 @@
 package test;
 
 import main.P1546;
+import main.P1546Cache;
+import main.P1546Coverage;
+import main.P1546Kernel;
+import main.P1546RadialSweep;
+import main.P1546SiteIndex;
+import main.P1546Terrain;
+import main.P1546ZoneMask;
+import main.GreatCircle;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.Assert;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 public class P1546Test {
     // the results are compared to the MATLAB implementation of Recommendation ITU-R P.1546-6
@@ -1613,8 +1635,1225 @@ public class P1546Test {
         }
     }
 
-}
 
+    @Test
+    public void test20() {
+        // P1546FieldStrMixedBatch gives the same results as P1546FieldStrMixed
+        // evaluated link by link, for land, sea, mixed and short paths
+
+        P1546 calculator = new P1546();
+
+        double[] f = {900, 2600, 100, 600, 1200, 450};
+        double[] t = {20, 50, 1, 10, 50, 5};
+        double[] heff = {478.1125, 1479.4333, 30, 5, 150, 75};
+        double[] h2 = {5, 1, 10, 10, 1.5, 3};
+        double[] R2 = {0, 0, 10, 15, 20, 10};
+        P1546.ClutterEnvironment[] area = {P1546.ClutterEnvironment.RURAL, P1546.ClutterEnvironment.RURAL,
+                P1546.ClutterEnvironment.RURAL, P1546.ClutterEnvironment.URBAN, P1546.ClutterEnvironment.DENSE_URBAN,
+                P1546.ClutterEnvironment.WATER};
+        double[][] d_v = {{10}, {100}, {20, 35.5, 12}, {0.5}, {40, 60}, {80}};
+        String[][] path_c = {{"Land"}, {"Land"}, {"Land", "Sea", "Land"}, {"Land"}, {"Warm", "Land"}, {"Cold"}};
+        int[] pathinfo = {1, 1, 0, 0, 1, 0};
+        double[] q = {50, 50, 50, 90, 10, 50};
+        double[] PTx = {1, 1, 1, 1, 1, 1};
+        double[] ha = {100, 1000, 30, 5, 40, 75};
+        double[] hb = {478.1125, -10000, -10000, -10000, 150, -10000};
+        double[] R1 = {0, 0, -1, 10, 20, -1};
+        double[] tca = {4.9153, -0.003581, 91, 2.5, 91, 91};
+        double[] htter = {754.4, 754.4, 0, 10, 100, 0};
+        double[] hrter = {250.3, 0, 0, 20, 50, 0};
+        double[] eff1 = {-2.6258, -6.5334, 91, 91, 1.5, 91};
+        double[] eff2 = {4.9153, -0.003581, 91, 91, 0.5, 91};
+        double[] sigmaL = {0, 0, 0, 5.5, 8, 0};
+
+        int n = f.length;
+        int[] zone_x = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            zone_x[i + 1] = zone_x[i] + d_v[i].length;
+        }
+        double[] d_all = new double[zone_x[n]];
+        byte[] zone_v = new byte[zone_x[n]];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < d_v[i].length; j++) {
+                d_all[zone_x[i] + j] = d_v[i][j];
+                zone_v[zone_x[i] + j] = P1546.zoneCode(path_c[i][j]);
+            }
+        }
+
+        double[] Lb = new double[n];
+        calculator.P1546FieldStrMixedBatch(f, t, heff, h2, R2, area, d_all, zone_v, zone_x, pathinfo,
+                q, PTx, ha, hb, R1, tca, htter, hrter, eff1, eff2, sigmaL, Lb);
+
+        for (int i = 0; i < n; i++) {
+            double L = calculator.P1546FieldStrMixed(f[i], t[i], heff[i], h2[i], R2[i], area[i], d_v[i], path_c[i], pathinfo[i],
+                    q[i], PTx[i], ha[i], hb[i], R1[i], tca[i], htter[i], hrter[i], eff1[i], eff2[i], sigmaL[i]);
+            Assert.assertEquals(L, Lb[i], 0);
+        }
+
+        Assert.assertEquals(140.9834, Lb[0], 1e-3);
+        Assert.assertEquals(186.1854, Lb[1], 1e-3);
+    }
+
+    @Test
+    public void test21() {
+        // A PathZones descriptor built once gives the same results as the
+        // String-based path description for all the receivers sharing it
+
+        P1546 calculator = new P1546();
+
+        double[] d_v = {20, 35.5, 12};
+        String[] path_c = {"Land", "Sea", "Land"};
+        P1546.PathZones path = new P1546.PathZones(d_v, path_c);
+
+        Assert.assertEquals(67.5, path.getDistance(), 0);
+        Assert.assertEquals(32, path.getLandDistance(), 0);
+        Assert.assertEquals(35.5, path.getSeaDistance(), 0);
+        Assert.assertEquals(3, path.getZoneCount());
+        Assert.assertEquals(P1546.Zone.COLD, path.getZone(1));
+        Assert.assertEquals(P1546.Zone.LAND, path.getLastZone());
+        Assert.assertTrue(path.isMixed());
+        Assert.assertEquals(P1546.Zone.WARM, P1546.Zone.parse("warm"));
+
+        P1546.PathZones same = new P1546.PathZones(d_v, new P1546.Zone[]{P1546.Zone.LAND, P1546.Zone.COLD, P1546.Zone.LAND});
+
+        double[] h2 = {1.5, 10, 20};
+        for (int i = 0; i < h2.length; i++) {
+            double L = calculator.P1546FieldStrMixed(600, 10, 150, h2[i], 10, P1546.ClutterEnvironment.SUBURBAN, d_v, path_c, 0,
+                    50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0);
+            double Lp = calculator.P1546FieldStrMixed(600, 10, 150, h2[i], 10, P1546.ClutterEnvironment.SUBURBAN, path, 0,
+                    50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0);
+            double Lz = calculator.P1546FieldStrMixed(600, 10, 150, h2[i], 10, P1546.ClutterEnvironment.SUBURBAN, same, 0,
+                    50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0);
+            Assert.assertEquals(L, Lp, 0);
+            Assert.assertEquals(L, Lz, 0);
+        }
+    }
+
+    @Test
+    public void test22() {
+        // Field-strength tables compiled for a frequency give the same results
+        // as the interpolation between the nominal frequencies, for land and sea
+        // paths, h1 above and below 10 m, and cases limited by Emax
+
+        P1546 calculator = new P1546();
+        P1546.Workspace ws = new P1546.Workspace();
+
+        double[] f = {30, 100, 450, 600, 900, 2000, 2600, 4000};
+        double[] t = {1, 5, 10, 30, 50};
+        double[] h1 = {-20, 0, 5, 10, 37.5, 95, 1200, 2500};
+        double[] d = {1, 2.5, 10, 47, 100, 380, 1000, 1200};
+
+        for (int ii = 0; ii < f.length; ii++) {
+            P1546.FrequencyTables ft = calculator.compileFrequency(f[ii]);
+            Assert.assertEquals(f[ii], ft.getFrequency(), 0);
+            for (int jj = 0; jj < t.length; jj++) {
+                for (int kk = 0; kk < h1.length; kk++) {
+                    for (int ll = 0; ll < d.length; ll++) {
+                        for (int path = 1; path <= 3; path++) {
+                            if (path > 1 && h1[kk] < 1) {
+                                continue;
+                            }
+                            double Emax = calculator.Step_19a(t[jj], path == 1 ? d[ll] : 0, path == 1 ? 0 : d[ll]);
+                            double E = calculator.step6_10(t[jj], f[ii], h1[kk], path, d[ll], Emax);
+                            double Ec = calculator.step6_10(t[jj], ft, h1[kk], path, d[ll], Emax, ws);
+                            Assert.assertEquals(E, Ec, 1e-9);
+                        }
+                    }
+                }
+            }
+        }
+
+        double[] d_v = {20, 35.5, 12};
+        String[] path_c = {"Land", "Warm", "Land"};
+        P1546.PathZones path = new P1546.PathZones(d_v, path_c);
+        P1546.FrequencyTables ft = calculator.compileFrequency(750);
+
+        double L = calculator.P1546FieldStrMixed(750, 10, 150, 1.5, 15, P1546.ClutterEnvironment.URBAN, d_v, path_c, 1,
+                90, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5);
+        double Lc = calculator.P1546FieldStrMixed(ft, 10, 150, 1.5, 15, P1546.ClutterEnvironment.URBAN, path, 1,
+                90, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, ws);
+        Assert.assertEquals(L, Lc, 1e-9);
+    }
+
+    @Test
+    public void test23() {
+        // Field strength interpolated from the transmitter curves gives the same
+        // results as Steps 6-10, on land, warm and cold sea paths, including
+        // distances at which the field strength is limited by Emax
+
+        P1546 calculator = new P1546();
+        P1546.Workspace ws = new P1546.Workspace();
+
+        double[] f = {50, 100, 900, 2600};
+        double[] t = {1, 10, 35};
+        double[] heff = {5, 37.5, 400, 2000};
+        double[] d = {1, 3.3, 15, 22.7, 100, 412, 1000};
+
+        for (int ii = 0; ii < f.length; ii++) {
+            for (int jj = 0; jj < t.length; jj++) {
+                for (int kk = 0; kk < heff.length; kk++) {
+                    P1546.TransmitterCurves tc = calculator.transmitterCurves(f[ii], t[jj], heff[kk]);
+                    for (int ll = 0; ll < d.length; ll++) {
+                        for (int path = 1; path <= 3; path++) {
+                            double Emax = calculator.Step_19a(t[jj], path == 1 ? d[ll] : 0, path == 1 ? 0 : d[ll]);
+                            double E = calculator.step6_10(t[jj], f[ii], heff[kk], path, d[ll], Emax);
+                            double Ec = calculator.step6_10(tc, path, d[ll], Emax, ws);
+                            Assert.assertEquals(E, Ec, 1e-9);
+                        }
+                    }
+                }
+            }
+        }
+
+        P1546.TransmitterCurves tc = calculator.transmitterCurves(900, 20, 478.1125);
+        Assert.assertEquals(calculator.step6_10(20, 900, 478.1125, 1, 20, 1000), tc.getFieldStrength(1, 19), 1e-9);
+
+        P1546.PathZones path = new P1546.PathZones(new double[]{10}, new String[]{"Land"});
+        double L = calculator.P1546FieldStrMixed(tc, 5, 0, P1546.ClutterEnvironment.RURAL, path, 1,
+                50, 1, 100, 478.1125, 0, 4.9153, 754.4, 250.3, -2.6258, 4.9153, 0, ws);
+        Assert.assertEquals(140.9834, L, 1e-3);
+    }
+
+    @Test
+    public void test24() {
+        // A calculator using the cache of Steps 6-10 gives identical results,
+        // including the field strengths limited by Emax; repeated links are
+        // served from the cache and the number of entries stays bounded
+
+        P1546 calculator = new P1546();
+        P1546Cache cache = new P1546Cache(8);
+        P1546 cached = new P1546(cache);
+        P1546.Workspace ws = new P1546.Workspace();
+
+        double[] f = {80, 900, 2600};
+        double[] h1 = {5, 150};
+        double[] d = {0.5, 1, 2.5, 40, 600};
+        P1546.PathZones[] paths = new P1546.PathZones[d.length];
+        for (int ll = 0; ll < d.length; ll++) {
+            paths[ll] = new P1546.PathZones(new double[]{d[ll] / 2, d[ll] / 2}, new String[]{"Land", "Warm"});
+        }
+
+        for (int repeat = 0; repeat < 2; repeat++) {
+            for (int ii = 0; ii < f.length; ii++) {
+                for (int kk = 0; kk < h1.length; kk++) {
+                    for (int ll = 0; ll < d.length; ll++) {
+                        double L = calculator.P1546FieldStrMixed(f[ii], 10, h1[kk], 10, 10, P1546.ClutterEnvironment.URBAN, paths[ll], 0,
+                                50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, ws);
+                        double Lc = cached.P1546FieldStrMixed(f[ii], 10, h1[kk], 10, 10, P1546.ClutterEnvironment.URBAN, paths[ll], 0,
+                                50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, ws);
+                        Assert.assertEquals(L, Lc, 0);
+                    }
+                }
+            }
+            Assert.assertTrue(cache.size() <= 8);
+        }
+        Assert.assertTrue(cache.getEvictionCount() > 0);
+
+        // every link is evaluated twice in a row: the second evaluation is a hit
+        for (P1546Cache.Eviction eviction : P1546Cache.Eviction.values()) {
+            cache = new P1546Cache(4, eviction, 0, 0, 0, 0);
+            for (int ll = 0; ll < d.length; ll++) {
+                for (int repeat = 0; repeat < 2; repeat++) {
+                    Assert.assertEquals(calculator.step6_10(10, 900, 150, 1, d[ll] + 1, 1000),
+                            cache.step6_10(calculator, 10, 900, 150, 1, d[ll] + 1, 1000, ws), 0);
+                }
+            }
+            Assert.assertEquals(d.length, cache.getHitCount());
+            Assert.assertEquals(d.length, cache.getMissCount());
+            cache.clear();
+            Assert.assertEquals(0, cache.size());
+            Assert.assertEquals(0, cache.getHitCount());
+        }
+
+        // quantised keys: the field strength is evaluated at the rounded values
+        cache = new P1546Cache(16, P1546Cache.Eviction.LRU, 1, 10, 5, 0.5);
+        double E = cache.step6_10(calculator, 10.2, 903, 152, 1, 40.2, 1000, ws);
+        Assert.assertEquals(calculator.step6_10(10, 900, 150, 1, 40, 1000), E, 0);
+        Assert.assertEquals(E, cache.step6_10(calculator, 9.9, 898, 148, 1, 39.9, 1000, ws), 0);
+        Assert.assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void test25() {
+        // The field-strength tables loaded from the binary resource restore the
+        // tabulated values exactly (Land, Warm Sea and Cold Sea paths)
+
+        P1546 calculator = new P1546();
+
+        Assert.assertEquals(89.976, calculator.step814_815(0, 0, 0, 1, 1), 0);
+        Assert.assertEquals(-72.288, calculator.step814_815(2, 2, 7, 1, 1000), 0);
+        Assert.assertEquals(106.905, calculator.step814_815(1, 0, 3, 2, 1), 0);
+        Assert.assertEquals(107.06, calculator.step814_815(0, 0, 3, 3, 1), 0);
+    }
+
+    @Test
+    public void test26() {
+        // Steps 6-10 evaluated with interpolation weights shared through one
+        // work space give the same results as with a new work space for every
+        // evaluation, whatever the order of (t, f, h1, d), and the same results
+        // as Steps 7-9 at the nominal time percentages
+
+        P1546 calculator = new P1546();
+        P1546.Workspace ws = new P1546.Workspace();
+
+        double[] f = {80, 100, 450, 2000, 3500};
+        double[] t = {1, 10, 50};
+        double[] h1 = {10, 42, 1200, 2400};
+        double[] d = {0.3, 1, 17.5, 1000, 1500};
+
+        for (int ll = 0; ll < d.length; ll++) {
+            for (int kk = 0; kk < h1.length; kk++) {
+                for (int ii = 0; ii < f.length; ii++) {
+                    for (int jj = 0; jj < t.length; jj++) {
+                        for (int path = 1; path <= 3; path++) {
+                            double Emax = calculator.Step_19a(t[jj], path == 1 ? d[ll] : 0, path == 1 ? 0 : d[ll]);
+                            Assert.assertEquals(calculator.step6_10(t[jj], f[ii], h1[kk], path, d[ll], Emax),
+                                    calculator.step6_10(t[jj], f[ii], h1[kk], path, d[ll], Emax, ws), 0);
+                            if (path == 1) {
+                                // nominal time percentage: Steps 7-9 only
+                                Assert.assertEquals(calculator.step7_normal(jj, f[ii], h1[kk], path, d[ll], Emax),
+                                        calculator.step6_10(t[jj], f[ii], h1[kk], path, d[ll], Emax, ws), 0);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test27() {
+        // The coverage raster computed in parallel over tiles gives the same
+        // basic transmission loss and field strength as P1546FieldStrMixed for
+        // each cell
+
+        P1546 calculator = new P1546();
+        int nx = 9;
+        int ny = 7;
+        int n = nx * ny;
+        P1546.PathZones[] path = new P1546.PathZones[n];
+        double[] h2 = new double[n];
+        double[] R2 = new double[n];
+        P1546.ClutterEnvironment[] area = new P1546.ClutterEnvironment[n];
+        double[] tca = new double[n];
+        for (int row = 0; row < ny; row++) {
+            for (int col = 0; col < nx; col++) {
+                int i = row * nx + col;
+                double d = 0.5 + Math.hypot(col + 1, row + 1) * 4.5;
+                path[i] = col < 5 ? new P1546.PathZones(new double[]{d}, new String[]{"Land"})
+                        : new P1546.PathZones(new double[]{d * 0.6, d * 0.4}, new String[]{"Land", "Warm"});
+                h2[i] = 1.5 + row;
+                R2[i] = 10;
+                area[i] = (i % 3 == 0) ? P1546.ClutterEnvironment.URBAN : P1546.ClutterEnvironment.RURAL;
+                tca[i] = (i % 4 == 0) ? 2.5 : 91;
+            }
+        }
+        path[11] = null;
+        P1546Coverage.ReceiverGrid grid = new P1546Coverage.ReceiverGrid(nx, ny, 500000, 5200000, 100, -100,
+                path, h2, R2, area, tca);
+        P1546Coverage.Transmitter tx = new P1546Coverage.Transmitter(650, 10, 120, 0, 50, 1, 40, -1, 0, 0);
+
+        double[] Lb = new double[n];
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            new P1546Coverage(calculator, pool, 4).compute(tx, grid, Lb);
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (path[i] == null) {
+                Assert.assertTrue(Double.isNaN(Lb[i]));
+                continue;
+            }
+            double L = calculator.P1546FieldStrMixed(650, 10, 120, h2[i], R2[i], area[i], path[i], 0, 50, 1, 40,
+                    -10000, -1, tca[i], 0, 0, 91, 91, 0);
+            Assert.assertEquals(L, Lb[i], 1e-9);
+        }
+
+        // with terrain information, hb of each cell (the average between 0.2 d
+        // and d depends on d), and the field strength raster for 10 kW
+        double[] hb = new double[n];
+        for (int i = 0; i < n; i++) {
+            hb[i] = 60 + 7 * (i % 11);
+        }
+        grid = new P1546Coverage.ReceiverGrid(nx, ny, 500000, 5200000, 100, -100, path, h2, R2, area, tca, hb,
+                null, null, null);
+        tx = new P1546Coverage.Transmitter(650, 10, 120, 1, 50, 10, 40, -1, 0, 0);
+        double[] E = new double[n];
+        pool = new ForkJoinPool(3);
+        try {
+            new P1546Coverage(calculator, pool, 4).compute(tx, grid, Lb, E);
+        } finally {
+            pool.shutdown();
+        }
+        for (int i = 0; i < n; i++) {
+            if (path[i] == null) {
+                Assert.assertTrue(Double.isNaN(Lb[i]));
+                Assert.assertTrue(Double.isNaN(E[i]));
+                continue;
+            }
+            // h1 = hb below 15 km (equ'n (6)), heff of the transmitter beyond
+            double heff = path[i].getDistance() < 15 ? hb[i] : 120;
+            P1546.Result res = calculator.P1546FieldStrMixedResult(650, 10, heff, h2[i], R2[i], area[i], path[i], 1, 50, 10,
+                    40, hb[i], -1, tca[i], 0, 0, 91, 91, 0, null, new P1546.Workspace());
+            Assert.assertEquals(res.getLoss(), Lb[i], 1e-9);
+            Assert.assertEquals(res.getFieldStrengthPTx(), E[i], 1e-9);
+        }
+        // cell 0 (6.9 km over land, hb = 60 m) differs from the curves for heff = 120 m
+        Assert.assertTrue(path[0].getDistance() < 15);
+        Assert.assertEquals(calculator.P1546FieldStrMixed(650, 10, 60, h2[0], R2[0], area[0], path[0], 1, 50, 10, 40,
+                60, -1, tca[0], 0, 0, 91, 91, 0), Lb[0], 1e-9);
+        Assert.assertNotEquals(calculator.P1546FieldStrMixed(650, 10, 120, h2[0], R2[0], area[0], path[0], 1, 50, 10, 40,
+                60, -1, tca[0], 0, 0, 91, 91, 0), Lb[0], 1e-3);
+        Assert.assertEquals(500200, grid.getX(2), 0);
+        Assert.assertEquals(5199700, grid.getY(3), 0);
+    }
+
+    @Test
+    public void test28() throws IOException {
+        // Terrain heights and terrain-dependent inputs from memory-mapped .hgt
+        // and raw tiles: a plane rising by 1 m per sample to the east, for
+        // which bilinear interpolation is exact, and paths along a meridian
+        // over flat terrain
+
+        Path dir = Files.createTempDirectory("p1546");
+        Path hgt = dir.resolve("N46E007.hgt");
+        Path raw = dir.resolve("grid.raw");
+        try {
+            int n = 1201;
+            ByteBuffer buf = ByteBuffer.allocate(2 * n * n).order(ByteOrder.BIG_ENDIAN);
+            for (int row = 0; row < n; row++) {
+                for (int col = 0; col < n; col++) {
+                    buf.putShort((short) (100 + col));
+                }
+            }
+            Files.write(hgt, buf.array());
+
+            P1546Terrain terrain = P1546Terrain.openHgt(hgt);
+            Assert.assertEquals(400, terrain.height(46.5, 7.25), 1e-9);
+            Assert.assertEquals(100, terrain.height(47, 7), 1e-9);
+
+            double ha = 50;
+            double h2 = 10;
+            P1546Terrain.PathInputs in = terrain.inputs(46.1, 7.5, ha, 46.6, 7.5, h2, 0.1);
+            Assert.assertEquals(GreatCircle.distance(46.1, 7.5, 46.6, 7.5), in.getDistance(), 1e-12);
+            Assert.assertEquals(0.5 * Math.PI / 180 * GreatCircle.R, in.getDistance(), 1e-9);
+            Assert.assertEquals(700, in.getHtter(), 1e-9);
+            Assert.assertEquals(700, in.getHrter(), 1e-9);
+            Assert.assertEquals(ha, in.getEffectiveHeight(), 1e-9);
+            Assert.assertEquals(ha, in.getHb(), 1e-9);
+            Assert.assertEquals(Math.toDegrees(Math.atan(-ha / 15000)), in.getEff1(), 1e-9);
+            Assert.assertTrue(in.getTca() < 0 && in.getTca() > Math.toDegrees(Math.atan(-h2 / 15000)));
+            Assert.assertEquals(in.getTca(), in.getEff2(), 0);
+
+            // looking east, up the slope of 1200 m per deg of longitude
+            in = terrain.inputs(46.5, 7.1, ha, 46.5, 7.2, h2, 0.1);
+            Assert.assertTrue(in.getEff1() > 0);
+            Assert.assertEquals(220, in.getHtter(), 1e-9);
+            Assert.assertEquals(340, in.getHrter(), 1e-9);
+
+            // raw float32 little-endian grid of 3 x 4 heights
+            ByteBuffer grid = ByteBuffer.allocate(4 * 12).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < 12; i++) {
+                grid.putFloat(10 * i);
+            }
+            Files.write(raw, grid.array());
+            terrain = P1546Terrain.openRaw(raw, P1546Terrain.Format.FLOAT32, ByteOrder.LITTLE_ENDIAN, 3, 4, 10, 20, 0.5, 0.25);
+            Assert.assertEquals(25, terrain.height(9.75, 20.125), 1e-9);
+        } finally {
+            Files.deleteIfExists(hgt);
+            Files.deleteIfExists(raw);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    public void test29() throws IOException {
+        // Path zones from a memory-mapped zone mask: a path along the equator
+        // crossing a band of warm sea, marched point to point and along a
+        // radial extended receiver by receiver
+
+        Path dir = Files.createTempDirectory("p1546");
+        Path mask = dir.resolve("zones.raw");
+        try {
+            // 3 x 21 samples, 0.1 deg apart in longitude: warm sea from 1.0 to 1.4 deg
+            byte[] grid = new byte[3 * 21];
+            for (int row = 0; row < 3; row++) {
+                for (int col = 0; col < 21; col++) {
+                    grid[row * 21 + col] = col >= 10 && col <= 14 ? P1546.WARM : P1546.LAND;
+                }
+            }
+            Files.write(mask, grid);
+            P1546ZoneMask zm = P1546ZoneMask.open(mask, 3, 21, 1, 0, 1, 0.1);
+            Assert.assertEquals(P1546.LAND, zm.zone(0, 0.94));
+            Assert.assertEquals(P1546.WARM, zm.zone(0.4, 0.96));
+            Assert.assertEquals(P1546.LAND, zm.zone(-0.4, 1.46));
+
+            double step = 0.01;
+            double km = Math.PI / 180 * GreatCircle.R;   // km per deg along the equator
+            P1546.PathZones path = zm.zones(0, 0.02, 0, 1.9, step);
+            Assert.assertEquals(3, path.getZoneCount());
+            Assert.assertEquals(P1546.Zone.LAND, path.getZone(0));
+            Assert.assertEquals(P1546.Zone.WARM, path.getZone(1));
+            Assert.assertEquals(P1546.Zone.LAND, path.getZone(2));
+            Assert.assertEquals(0.93 * km, path.getZoneDistance(0), step);
+            Assert.assertEquals(0.5 * km, path.getZoneDistance(1), step);
+            Assert.assertEquals(1.88 * km, path.getDistance(), 1e-9);
+
+            // receivers along the same radial, nearest first and then in any order
+            P1546ZoneMask.Radial radial = zm.radial(0, 0.02, 90, step);
+            double[] lon = {0.5, 1.2, 1.9, 1.0, 0.021};
+            for (double x : lon) {
+                P1546.PathZones expected = zm.zones(0, 0.02, 0, x, step);
+                P1546.PathZones actual = radial.zones(GreatCircle.distance(0, 0.02, 0, x));
+                Assert.assertEquals(expected.getZoneCount(), actual.getZoneCount());
+                for (int ii = 0; ii < expected.getZoneCount(); ii++) {
+                    Assert.assertEquals(expected.getZone(ii), actual.getZone(ii));
+                    Assert.assertEquals(expected.getZoneDistance(ii), actual.getZoneDistance(ii), 0);
+                }
+            }
+            Assert.assertEquals(1, radial.zones(0.5 * km).getZoneCount());
+            Assert.assertEquals(2, radial.zones(1.2 * km).getZoneCount());
+
+            // the last, partial segment takes the zone of its part up to the
+            // receiver: land at 0.915 deg, not the warm sea at 1.0 deg of the
+            // midpoint of the full segment, also after a farther receiver
+            double coarse = 0.2 * km;
+            P1546ZoneMask.Radial coast = zm.radial(0, 0.1, 90, coarse);
+            Assert.assertEquals(3, coast.zones(1.7 * km).getZoneCount());
+            for (P1546.PathZones near : new P1546.PathZones[]{zm.zones(0, 0.1, 0, 0.93, coarse), coast.zones(0.83 * km)}) {
+                Assert.assertEquals(1, near.getZoneCount());
+                Assert.assertEquals(P1546.Zone.LAND, near.getZone(0));
+                Assert.assertEquals(0.83 * km, near.getDistance(), 1e-9);
+            }
+            P1546.PathZones sea = coast.zones(1.13 * km);
+            Assert.assertEquals(2, sea.getZoneCount());
+            Assert.assertEquals(0.8 * km, sea.getZoneDistance(0), 1e-9);
+            Assert.assertEquals(0.33 * km, sea.getZoneDistance(1), 1e-9);
+
+            try {
+                zm.zone(0, 2.2);
+                Assert.fail();
+            } catch (RuntimeException e) {
+                // outside of the mask
+            }
+        } finally {
+            Files.deleteIfExists(mask);
+            Files.deleteIfExists(dir);
+        }
+    }
 
+    @Test
+    public void test30() throws IOException {
+        // Radial sweep: the terrain inputs of all the receivers along a radial,
+        // from a single pass over the profile, equal those computed directly
+        // for each receiver from the same profile samples, and the sweep
+        // gives the same basic transmission loss as P1546FieldStrMixed
+
+        Path dir = Files.createTempDirectory("p1546");
+        Path hgt = dir.resolve("N46E007.hgt");
+        try {
+            int n = 1201;
+            ByteBuffer buf = ByteBuffer.allocate(2 * n * n).order(ByteOrder.BIG_ENDIAN);
+            long seed = 12345;
+            for (int row = 0; row < n; row++) {
+                for (int col = 0; col < n; col++) {
+                    seed = seed * 6364136223846793005L + 1442695040888963407L;
+                    double noise = (seed >>> 40) % 60;
+                    buf.putShort((short) (400 + 250 * Math.sin(row / 37.0) * Math.cos(col / 53.0) + noise));
+                }
+            }
+            Files.write(hgt, buf.array());
+            P1546Terrain terrain = P1546Terrain.openHgt(hgt);
+
+            double txLat = 46.5;
+            double txLon = 7.5;
+            double ha = 30;
+            double h2 = 10;
+            double step = 0.3;
+            int nr = 120;
+            double[] bearing = {0, 90, 217.5};
+            double[] p = new double[2];
+            for (double b : bearing) {
+                P1546Terrain.RadialInputs in = terrain.radialInputs(txLat, txLon, ha, b, h2, step, nr);
+                Assert.assertEquals(nr, in.getCount());
+
+                GreatCircle.Path path = new GreatCircle.Path(txLat, txLon, b);
+                double[] h = new double[nr + 1];
+                h[0] = terrain.height(txLat, txLon);
+                for (int j = 1; j <= nr; j++) {
+                    path.point(j * step, p);
+                    h[j] = terrain.height(p[0], p[1]);
+                }
+                double htx = h[0] + ha;
+                Assert.assertEquals(h[0], in.getHtter(), 0);
+                for (int k = 1; k <= nr; k++) {
+                    double d = k * step;
+                    double hrx = h[k] + h2;
+                    double sumb = 0;
+                    int nb = 0;
+                    double tan1 = Double.NEGATIVE_INFINITY;
+                    double tan2 = Double.NEGATIVE_INFINITY;
+                    for (int j = 0; j <= k; j++) {
+                        double x = j * step;
+                        if (j > 0 && x >= 0.2 * d) {
+                            sumb = sumb + h[j];
+                            nb = nb + 1;
+                        }
+                        if (j > 0 && x <= Math.min(15, d)) {
+                            tan1 = Math.max(tan1, (h[j] - htx) / (1000 * x));
+                        }
+                        if (j < k && d - x <= 16) {
+                            tan2 = Math.max(tan2, (h[j] - hrx) / (1000 * (d - x)));
+                        }
+                    }
+                    Assert.assertEquals(h[k], in.getHrter(k), 1e-6);
+                    Assert.assertEquals(htx - sumb / nb, in.getHb(k), 1e-6);
+                    Assert.assertEquals(Math.toDegrees(Math.atan(tan1)), in.getEff1(k), 1e-9);
+                    Assert.assertEquals(Math.toDegrees(Math.atan(tan2)), in.getEff2(k), 1e-9);
+                    Assert.assertEquals(in.getEff2(k), in.getTca(k), 0);
+                }
+            }
 
+            // sweep over land, compared with P1546FieldStrMixed at the receivers
+            P1546 calculator = new P1546();
+            P1546RadialSweep.Transmitter tx = new P1546RadialSweep.Transmitter(txLat, txLon, 600, 10, ha, 50, 1, -1, 0);
+            P1546RadialSweep sweep = new P1546RadialSweep(calculator, terrain, null, new ForkJoinPool(2));
+            P1546RadialSweep.Result result = sweep.compute(tx, h2, 10, P1546.ClutterEnvironment.RURAL, 8, step, 30);
+            Assert.assertEquals(100, result.getCount());
+            // (h1 = hb below 15 km, equ'n (6), and heff of the radial beyond)
+            int differ = 0;
+            for (int a = 0; a < 8; a += 3) {
+                P1546Terrain.RadialInputs in = terrain.radialInputs(txLat, txLon, ha, a * 45.0, h2, step, 100);
+                for (int k = 1; k <= 100; k += 9) {
+                    double d = k * step;
+                    double heff = d < 15 ? in.getHb(k) : in.getEffectiveHeight();
+                    double expected = calculator.P1546FieldStrMixed(600, 10, heff, h2, 10,
+                            P1546.ClutterEnvironment.RURAL, new double[]{d}, new String[]{"Land"}, 1, 50, 1, ha,
+                            in.getHb(k), -1, in.getTca(k), in.getHtter(), in.getHrter(k), in.getEff1(k), in.getEff2(k), 0);
+                    Assert.assertEquals(expected, result.getLoss(a, k), 1e-9);
+                    if (d < 15 && Math.abs(heff - in.getEffectiveHeight()) > 1) {
+                        double radial = calculator.P1546FieldStrMixed(600, 10, in.getEffectiveHeight(), h2, 10,
+                                P1546.ClutterEnvironment.RURAL, new double[]{d}, new String[]{"Land"}, 1, 50, 1, ha,
+                                in.getHb(k), -1, in.getTca(k), in.getHtter(), in.getHrter(k), in.getEff1(k), in.getEff2(k), 0);
+                        differ = differ + (radial != result.getLoss(a, k) ? 1 : 0);
+                    }
+                }
+            }
+            Assert.assertTrue(differ > 0);
+
+            // over warm sea h1 = heff of the radial also below 15 km (Section 3.3)
+            Path sea = dir.resolve("sea.raw");
+            byte[] zones = new byte[9];
+            Arrays.fill(zones, P1546.WARM);
+            Files.write(sea, zones);
+            try {
+                P1546ZoneMask mask = P1546ZoneMask.open(sea, 3, 3, 47, 7, 0.5, 0.5);
+                tx = new P1546RadialSweep.Transmitter(txLat, txLon, 600, 10, 300, 50, 1, -1, 0);
+                result = new P1546RadialSweep(calculator, terrain, mask, new ForkJoinPool(2))
+                        .compute(tx, h2, 10, P1546.ClutterEnvironment.WATER, 4, step, 30);
+                P1546Terrain.RadialInputs in = terrain.radialInputs(txLat, txLon, 300, 90, h2, step, 100);
+                for (int k = 1; k <= 100; k += 9) {
+                    double expected = calculator.P1546FieldStrMixed(600, 10, in.getEffectiveHeight(), h2, 10,
+                            P1546.ClutterEnvironment.WATER, new double[]{k * step}, new String[]{"Warm"}, 1, 50, 1, 300,
+                            in.getHb(k), -1, in.getTca(k), in.getHtter(), in.getHrter(k), in.getEff1(k), in.getEff2(k), 0);
+                    Assert.assertEquals(expected, result.getLoss(1, k), 1e-9);
+                }
+            } finally {
+                Files.deleteIfExists(sea);
+            }
 
+            // resampled to a grid along the meridian of the transmitter, north
+            int k = 40;
+            double lat = txLat + Math.toDegrees(k * step / GreatCircle.R);
+            double[] Lb = new double[2];
+            result.resample(2, 1, lat, txLon, lat - txLat, 1, Lb);
+            Assert.assertEquals(result.getLoss(0, k), Lb[0], 1e-6);
+            Assert.assertEquals(result.getLoss(0, 1), Lb[1], 0);
+            Assert.assertTrue(Double.isNaN(result.getLoss(0.0, 31)));
+        } finally {
+            Files.deleteIfExists(hgt);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    public void test31() {
+        // Distance bracketing from the cursor of a work space gives the same
+        // nominal distances as the search of the whole table, for distances
+        // increasing, decreasing and in random order, and a distance sweep
+        // reusing one work space gives results identical to fresh work spaces
+
+        P1546 calculator = new P1546();
+        P1546.Workspace ws = new P1546.Workspace();
+        double[] distance = P1546.tabIndex(2);
+        Random random = new Random(7);
+        double[] d = new double[3000];
+        for (int i = 0; i < 1000; i++) {
+            d[i] = 0.5 + i * 1.2;
+            d[1000 + i] = 1200 - i * 1.2;
+            d[2000 + i] = random.nextInt(4) == 0 ? distance[random.nextInt(distance.length)] : random.nextDouble() * 1100;
+        }
+        for (double x : d) {
+            Assert.assertArrayEquals(calculator.FindDNominals(x), calculator.FindDNominals(x, ws), 0);
+        }
+
+        String[] zone = {"Land", "Sea"};
+        for (int k = 0; k < 2; k++) {
+            ws = new P1546.Workspace();
+            for (double x = 1; x <= 1000; x = x * 1.01) {
+                P1546.PathZones path = new P1546.PathZones(new double[]{x}, new String[]{zone[k]});
+                double expected = calculator.P1546FieldStrMixed(90, 10, 150, 10, 10, P1546.ClutterEnvironment.RURAL,
+                        path, 0, 50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, new P1546.Workspace());
+                double actual = calculator.P1546FieldStrMixed(90, 10, 150, 10, 10, P1546.ClutterEnvironment.RURAL,
+                        path, 0, 50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, ws);
+                Assert.assertEquals(expected, actual, 0);
+            }
+        }
+    }
+
+    @Test
+    public void test32() {
+        // A frequency sweep gives at each frequency the same basic transmission
+        // loss as P1546FieldStrMixed, for land, sea, mixed and short paths,
+        // with and without the cache of Steps 6-10 (within 1e-9 dB with the
+        // vector lanes of P1546Kernel)
+
+        double[] f = new double[40];
+        for (int i = 0; i < f.length; i++) {
+            f[i] = 30 + i * 100.3;
+        }
+        f[3] = 100;
+        f[5] = 600;
+        f[19] = 2000;
+        P1546.PathZones[] paths = {
+                new P1546.PathZones(new double[]{45}, new String[]{"Land"}),
+                new P1546.PathZones(new double[]{45}, new String[]{"Sea"}),
+                new P1546.PathZones(new double[]{20, 35.5, 12}, new String[]{"Land", "Warm", "Land"}),
+                new P1546.PathZones(new double[]{3, 4}, new String[]{"Cold", "Land"}),
+                new P1546.PathZones(new double[]{0.5}, new String[]{"Land"}),
+        };
+        P1546[] calculators = {new P1546(), new P1546(new P1546Cache(1000))};
+        double[] Lb = new double[f.length];
+        for (P1546 calculator : calculators) {
+            P1546.Workspace ws = new P1546.Workspace();
+            double delta = calculator == calculators[0] && P1546Kernel.isVectorAvailable() ? 1e-9 : 0;
+            for (P1546.PathZones path : paths) {
+                for (double h1 : new double[]{5, 150}) {
+                    calculator.P1546FieldStrMixedFrequencySweep(f, 20, h1, 1.5, 15, P1546.ClutterEnvironment.URBAN, path,
+                            1, 90, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, Lb, ws);
+                    for (int i = 0; i < f.length; i++) {
+                        double expected = calculator.P1546FieldStrMixed(f[i], 20, h1, 1.5, 15, P1546.ClutterEnvironment.URBAN,
+                                path, 1, 90, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, new P1546.Workspace());
+                        Assert.assertEquals(expected, Lb[i], delta);
+                    }
+                    calculator.P1546FieldStrMixedFrequencySweep(f, 50, h1, 10, 10, P1546.ClutterEnvironment.RURAL, path,
+                            0, 50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, Lb, ws);
+                    for (int i = 0; i < f.length; i++) {
+                        double expected = calculator.P1546FieldStrMixed(f[i], 50, h1, 10, 10, P1546.ClutterEnvironment.RURAL,
+                                path, 0, 50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, new P1546.Workspace());
+                        Assert.assertEquals(expected, Lb[i], delta);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test33() {
+        // A time-percentage sweep gives at each time percentage the same basic
+        // transmission loss as P1546FieldStrMixed, including the field
+        // strengths limited by Emax (short sea paths) and the sea paths of
+        // equ'n (15) (f < 100 MHz)
+
+        double[] t = new double[50];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = 1 + i;
+        }
+        t[49] = 1.5;
+        P1546.PathZones[] paths = {
+                new P1546.PathZones(new double[]{45}, new String[]{"Land"}),
+                new P1546.PathZones(new double[]{2}, new String[]{"Sea"}),
+                new P1546.PathZones(new double[]{300}, new String[]{"Cold"}),
+                new P1546.PathZones(new double[]{20, 35.5, 12}, new String[]{"Land", "Warm", "Land"}),
+                new P1546.PathZones(new double[]{0.5}, new String[]{"Land"}),
+        };
+        P1546[] calculators = {new P1546(), new P1546(new P1546Cache(1000))};
+        double[] Lb = new double[t.length];
+        for (P1546 calculator : calculators) {
+            P1546.Workspace ws = new P1546.Workspace();
+            for (P1546.PathZones path : paths) {
+                for (double f : new double[]{60, 900, 3000}) {
+                    for (double h1 : new double[]{5, 150}) {
+                        calculator.P1546FieldStrMixedTimeSweep(f, t, h1, 1.5, 15, P1546.ClutterEnvironment.URBAN, path,
+                                1, 90, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, Lb, ws);
+                        for (int i = 0; i < t.length; i++) {
+                            double expected = calculator.P1546FieldStrMixed(f, t[i], h1, 1.5, 15, P1546.ClutterEnvironment.URBAN,
+                                    path, 1, 90, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, new P1546.Workspace());
+                            Assert.assertEquals(expected, Lb[i], 0);
+                        }
+                        calculator.P1546FieldStrMixedTimeSweep(f, t, h1, 10, 10, P1546.ClutterEnvironment.RURAL, path,
+                                0, 50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, Lb, ws);
+                        for (int i = 0; i < t.length; i++) {
+                            double expected = calculator.P1546FieldStrMixed(f, t[i], h1, 10, 10, P1546.ClutterEnvironment.RURAL,
+                                    path, 0, 50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, new P1546.Workspace());
+                            Assert.assertEquals(expected, Lb[i], 0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test34() {
+        // The structured result gives the same basic transmission loss as
+        // P1546FieldStrMixed, and Steps 18-20 applied again for other location
+        // percentages and standard deviations give the same basic transmission
+        // loss as a new evaluation, including the field strengths limited by Emax
+
+        P1546.PathZones[] paths = {
+                new P1546.PathZones(new double[]{45}, new String[]{"Land"}),
+                new P1546.PathZones(new double[]{0.5}, new String[]{"Sea"}),
+                new P1546.PathZones(new double[]{20, 35.5, 12}, new String[]{"Land", "Warm", "Land"}),
+        };
+        double[] qs = {1, 10, 50, 75.5, 99};
+        P1546 calculator = new P1546();
+        P1546.Workspace ws = new P1546.Workspace();
+        P1546.Result res = null;
+        for (P1546.PathZones path : paths) {
+            for (double f : new double[]{100, 2000}) {
+                res = calculator.P1546FieldStrMixedResult(f, 10, 75, 1.5, 15, P1546.ClutterEnvironment.URBAN, path,
+                        1, 90, 2, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, res, ws);
+                double expected = calculator.P1546FieldStrMixed(f, 10, 75, 1.5, 15, P1546.ClutterEnvironment.URBAN, path,
+                        1, 90, 2, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, ws);
+                Assert.assertEquals(expected, res.getLoss(), 0);
+                Assert.assertTrue(res.getFieldStrength() <= res.getMaximumFieldStrength());
+                Assert.assertEquals(res.getFieldStrength() + 10 * Math.log10(2), res.getFieldStrengthPTx(), 0);
+                for (double q : qs) {
+                    for (double sigma_L : new double[]{0, 5.5, 8}) {
+                        expected = calculator.P1546FieldStrMixed(f, 10, 75, 1.5, 15, P1546.ClutterEnvironment.URBAN, path,
+                                1, q, 2, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, sigma_L, ws);
+                        Assert.assertEquals(expected, res.getLoss(q, sigma_L), 0);
+                    }
+                }
+                double[] Lb = new double[qs.length];
+                res.getLoss(qs, 5.5, Lb);
+                for (int i = 0; i < qs.length; i++) {
+                    Assert.assertEquals(res.getLoss(qs[i], 5.5), Lb[i], 0);
+                }
+            }
+        }
+        // without the terrain clearance angle correction, at 50% of locations
+        res = calculator.P1546FieldStrMixedResult(600, 50, 20, 10, 10, P1546.ClutterEnvironment.RURAL, paths[0],
+                0, 50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, null, ws);
+        Assert.assertEquals(0, res.getClearanceAngleCorrection(), 0);
+        Assert.assertEquals(res.getMedianFieldStrength(), res.getFieldStrength(), 0);
+    }
+
+    @Test
+    public void test35() {
+        // A receiver sweep gives for each receiver configuration the same basic
+        // transmission loss as P1546FieldStrMixed, including the field
+        // strengths limited by Emax (short sea paths), paths shorter than 1 km
+        // and the sea paths of equ'n (15) (f < 100 MHz)
+
+        double[] h2 = {10, 1.5, 1.5, 4, 30, 1.5};
+        double[] R2 = {10, 15, 20, 10, 10, 0};
+        P1546.ClutterEnvironment[] area = {
+                P1546.ClutterEnvironment.RURAL, P1546.ClutterEnvironment.URBAN, P1546.ClutterEnvironment.DENSE_URBAN,
+                P1546.ClutterEnvironment.SUBURBAN, P1546.ClutterEnvironment.RURAL, P1546.ClutterEnvironment.RURAL,
+        };
+        P1546.PathZones[] paths = {
+                new P1546.PathZones(new double[]{45}, new String[]{"Land"}),
+                new P1546.PathZones(new double[]{2}, new String[]{"Sea"}),
+                new P1546.PathZones(new double[]{300}, new String[]{"Cold"}),
+                new P1546.PathZones(new double[]{20, 35.5, 12}, new String[]{"Land", "Warm", "Land"}),
+                new P1546.PathZones(new double[]{0.5}, new String[]{"Land"}),
+        };
+        P1546[] calculators = {new P1546(), new P1546(new P1546Cache(1000))};
+        double[] Lb = new double[h2.length];
+        for (P1546 calculator : calculators) {
+            P1546.Workspace ws = new P1546.Workspace();
+            for (P1546.PathZones path : paths) {
+                for (double f : new double[]{60, 900, 3000}) {
+                    for (double h1 : new double[]{5, 150}) {
+                        calculator.P1546FieldStrMixedReceiverSweep(f, 10, h1, h2, R2, area, path,
+                                1, 90, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, Lb, ws);
+                        for (int i = 0; i < h2.length; i++) {
+                            double expected = calculator.P1546FieldStrMixed(f, 10, h1, h2[i], R2[i], area[i], path,
+                                    1, 90, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5, new P1546.Workspace());
+                            Assert.assertEquals(expected, Lb[i], 0);
+                        }
+                        calculator.P1546FieldStrMixedReceiverSweep(f, 1, h1, h2, R2, area, path,
+                                0, 50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, Lb, ws);
+                        for (int i = 0; i < h2.length; i++) {
+                            double expected = calculator.P1546FieldStrMixed(f, 1, h1, h2[i], R2[i], area[i], path,
+                                    0, 50, 1, 40, -10000, -1, 91, 0, 0, 91, 91, 0, new P1546.Workspace());
+                            Assert.assertEquals(expected, Lb[i], 0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test36() {
+        // The field strength bound is not below the field strength of random
+        // links, and a culled batch gives the same basic transmission loss as
+        // P1546FieldStrMixedBatch for the links which are not culled, and a
+        // field strength below Emin for the culled ones
+
+        P1546 calculator = new P1546();
+        P1546.Workspace ws = new P1546.Workspace();
+        int n = 4000;
+        RandomLinks links = new RandomLinks(20, n, false);
+        double[] E = new double[n];
+        for (int i = 0; i < n; i++) {
+            E[i] = links.result(calculator, i, ws).getFieldStrengthPTx();
+            Assert.assertTrue(links.bound(calculator, i, ws) >= E[i]);
+        }
+
+        double[] Lb = new double[n];
+        links.batch(calculator, Lb);
+        double[] Lc = new double[n];
+        int culled = links.culled(calculator, 20, Lc);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (Lc[i] == Double.POSITIVE_INFINITY) {
+                Assert.assertTrue(E[i] < 20);
+                count = count + 1;
+            } else {
+                Assert.assertEquals(Lb[i], Lc[i], 0);
+            }
+        }
+        Assert.assertEquals(count, culled);
+        Assert.assertTrue(culled > 0);
+
+        // an invalid link throws instead of being culled, even far below Emin
+        int far = -1;
+        for (int i = 0; i < n && far < 0; i++) {
+            if (Lc[i] == Double.POSITIVE_INFINITY && links.area[i] == P1546.ClutterEnvironment.RURAL) {
+                far = i;
+            }
+        }
+        Assert.assertTrue(far >= 0);
+        links.h2[far] = 0.5;
+        try {
+            links.culled(calculator, 20, Lc);
+            Assert.fail("An invalid link must not be culled.");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().startsWith("This Recommendation is not valid for receiving/mobile antenna height h2 < 1 m"));
+        }
+    }
+
+    @Test
+    public void test37() {
+        // The site index returns the same sites as a search of all the sites
+        // for the bound of Emax, including sites across the antimeridian, and
+        // evaluates them as P1546FieldStrMixed
+
+        P1546 calculator = new P1546();
+        Random random = new Random(21);
+        int n = 3000;
+        P1546SiteIndex.Site[] sites = new P1546SiteIndex.Site[n];
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        double[] t = new double[n];
+        double[] PTx = new double[n];
+        double[] K = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 40 + 20 * random.nextDouble();
+            lon[i] = i % 10 == 0 ? 179 + 2 * random.nextDouble() : 30 * random.nextDouble() - 10;
+            t[i] = random.nextBoolean() ? 50 : 1 + 49 * random.nextDouble();
+            PTx[i] = Math.pow(10, 3 * random.nextDouble() - 2);
+            sites[i] = new P1546SiteIndex.Site(lat[i], lon[i], 600, t[i], 150, 0, 50, PTx[i], 150, -1, 0, 0);
+            K[i] = 106.9 + 2.38 * Math.log10(50 / t[i]) + 10 * Math.log10(PTx[i]);
+        }
+        P1546SiteIndex index = new P1546SiteIndex(calculator, sites, null, 0);
+        Assert.assertEquals(n, index.size());
+
+        int[] out = new int[n];
+        double[] Lb = new double[n];
+        P1546.Workspace ws = new P1546.Workspace();
+        for (int v = 0; v < 20; v++) {
+            double vlat = 40 + 20 * random.nextDouble();
+            double vlon = v % 5 == 0 ? -179.5 : 30 * random.nextDouble() - 10;
+            double Emin = 20 + 40 * random.nextDouble();
+            int m = index.query(vlat, vlon, Emin, out);
+            int expected = 0;
+            for (int i = 0; i < n; i++) {
+                double E = K[i] - 20 * Math.log10(GreatCircle.distance(lat[i], lon[i], vlat, vlon));
+                if (E >= Emin) {
+                    Assert.assertEquals(i, out[expected]);
+                    expected = expected + 1;
+                }
+            }
+            Assert.assertEquals(expected, m);
+
+            m = index.evaluate(vlat, vlon, 10, 10, P1546.ClutterEnvironment.RURAL, 0, Emin, out, Lb);
+            Assert.assertEquals(expected, m);
+            for (int k = 0; k < m; k++) {
+                P1546.PathZones path = new P1546.PathZones(
+                        new double[]{GreatCircle.distance(lat[out[k]], lon[out[k]], vlat, vlon)}, new String[]{"Land"});
+                P1546.Result res = calculator.P1546FieldStrMixedResult(600, t[out[k]], 150, 10, 10,
+                        P1546.ClutterEnvironment.RURAL, path, 0, 50, PTx[out[k]], 150, -10000, -1, 91, 0, 0, 91, 91, 0,
+                        null, ws);
+                if (Lb[k] == Double.POSITIVE_INFINITY) {
+                    Assert.assertTrue(res.getFieldStrengthPTx() < Emin);
+                } else {
+                    Assert.assertEquals(res.getLoss(), Lb[k], 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test38() {
+        // The batch kernels agree with the scalar methods within 1e-9 dB, with
+        // and without the vector lanes, for tabulated and interpolated values,
+        // Emax limiting, links outside the tables (h1 < 10 m, d < 1 km or
+        // d > 1000 km, f < 100 MHz or f > 2000 MHz) and a partial last vector
+
+        P1546 calculator = new P1546();
+        Random random = new Random(22);
+        int n = 1003;
+        double[] t = new double[n];
+        double[] f = new double[n];
+        double[] h1 = new double[n];
+        byte[] path = new byte[n];
+        double[] d = new double[n];
+        double[] Emax = new double[n];
+        double[] dland = new double[n];
+        double[] dsea = new double[n];
+        double[] ha = new double[n];
+        double[] h2 = new double[n];
+        double[] htter = new double[n];
+        double[] hrter = new double[n];
+        for (int i = 0; i < n; i++) {
+            t[i] = random.nextInt(4) == 0 ? P1546.tabIndex(0)[random.nextInt(3)] : 1 + 49 * random.nextDouble();
+            f[i] = random.nextInt(4) == 0 ? P1546.tabIndex(1)[random.nextInt(3)] : 100 * Math.pow(20, random.nextDouble());
+            h1[i] = random.nextInt(4) == 0 ? P1546.tabIndex(3)[random.nextInt(8)] : 10 * Math.pow(120, random.nextDouble());
+            d[i] = random.nextInt(4) == 0 ? P1546.tabIndex(2)[random.nextInt(78)] : Math.pow(1000, random.nextDouble());
+            if (i % 50 == 1) {
+                h1[i] = 5;
+            } else if (i % 50 == 2) {
+                d[i] = 0.5;
+            } else if (i % 50 == 3) {
+                d[i] = 1500;
+            } else if (i % 50 == 4) {
+                f[i] = 50;
+            } else if (i % 50 == 5) {
+                f[i] = 3000;
+            }
+            path[i] = (byte) (1 + random.nextInt(3));
+            dsea[i] = random.nextBoolean() ? 0 : d[i] * random.nextDouble();
+            dland[i] = d[i] - dsea[i];
+            Emax[i] = random.nextInt(10) == 0 ? 60 : 200;
+            ha[i] = 300 * random.nextDouble();
+            h2[i] = 1 + 20 * random.nextDouble();
+            htter[i] = 1000 * random.nextDouble();
+            hrter[i] = 1000 * random.nextDouble();
+        }
+
+        P1546.Workspace ws = new P1546.Workspace();
+        for (boolean vector : new boolean[]{false, true}) {
+            P1546Kernel kernel = new P1546Kernel(calculator, vector);
+            Assert.assertEquals(vector && P1546Kernel.isVectorAvailable(), kernel.isVectorized());
+            double[] E = new double[n];
+            double[] Em = new double[n];
+            double[] Lb = new double[n];
+            double[] ds = new double[n];
+            kernel.step6_10(t, f, h1, path, d, Emax, E);
+            kernel.Step_19a(t, dland, dsea, Em);
+            kernel.Step_20a(f, E, Lb);
+            kernel.dslope(ha, h2, d, htter, hrter, ds);
+            for (int i = 0; i < n; i++) {
+                Assert.assertEquals(calculator.step6_10(t[i], f[i], h1[i], path[i], d[i], Emax[i], ws), E[i], 1e-9);
+                Assert.assertEquals(calculator.Step_19a(t[i], dland[i], dsea[i]), Em[i], 1e-9);
+                Assert.assertEquals(calculator.Step_20a(f[i], E[i]), Lb[i], 1e-9);
+                Assert.assertEquals(calculator.dslope(ha[i], h2[i], d[i], htter[i], hrter[i]), ds[i], 0);
+            }
+        }
+    }
+
+    @Test
+    public void test39() {
+        // The checked batch marks as invalid exactly the links for which
+        // P1546FieldStrMixed throws, with the status of the first limit that
+        // is exceeded, leaves NaN for them and gives the same basic
+        // transmission loss as P1546FieldStrMixed for the other ones
+
+        P1546 calculator = new P1546();
+        P1546.Workspace ws = new P1546.Workspace();
+        int n = 3000;
+        RandomLinks links = new RandomLinks(23, n, true);
+        P1546.Status[] expected = new P1546.Status[n];
+        double[] expectedLb = new double[n];
+        for (int i = 0; i < n; i++) {
+            try {
+                expectedLb[i] = links.result(calculator, i, ws).getLoss();
+                expected[i] = P1546.Status.OK;
+            } catch (RuntimeException e) {
+                expectedLb[i] = Double.NaN;
+                expected[i] = P1546.Status.ERROR;
+                for (P1546.Status status : P1546.Status.values()) {
+                    if (e.getMessage() != null && e.getMessage().startsWith(status.toString())) {
+                        expected[i] = status;
+                    }
+                }
+            }
+        }
+
+        double[] Lb = new double[n];
+        byte[] status = new byte[n];
+        byte[] validated = new byte[n];
+        int invalid = links.checked(calculator, Lb, status);
+        Assert.assertEquals(invalid, links.validate(calculator, validated));
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals(status[i], validated[i]);
+            P1546.Status s = P1546.Status.fromCode(status[i]);
+            Assert.assertNotEquals(P1546.Status.ERROR, s);
+            if (expected[i] == P1546.Status.OK) {
+                Assert.assertEquals(P1546.Status.OK, s);
+                Assert.assertEquals(expectedLb[i], Lb[i], 0);
+            } else {
+                Assert.assertNotEquals(P1546.Status.OK, s);
+                Assert.assertTrue(Double.isNaN(Lb[i]));
+                if (expected[i] != P1546.Status.ERROR) {
+                    Assert.assertEquals(expected[i], s);
+                }
+                count = count + 1;
+            }
+        }
+        Assert.assertEquals(count, invalid);
+        Assert.assertTrue(invalid > n / 10);
+        Assert.assertTrue(invalid < n / 2);
+    }
+
+    @Test
+    public void test40() throws IOException {
+        // The step group events are recorded with their inputs once enabled in
+        // a recording, and the results are the same as without a recording
+
+        P1546 calculator = new P1546();
+        P1546.PathZones mixed = new P1546.PathZones(new double[]{20, 35.5, 12}, new String[]{"Land", "Warm", "Land"});
+        P1546.PathZones shortPath = new P1546.PathZones(new double[]{0.5}, new String[]{"Land"});
+        double L1 = calculator.P1546FieldStrMixed(900, 20, 150, 1.5, 15, P1546.ClutterEnvironment.URBAN, mixed, 1,
+                90, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5);
+        double L2 = calculator.P1546FieldStrMixed(600, 10, 5, 10, 15, P1546.ClutterEnvironment.SUBURBAN, shortPath, 0,
+                50, 1, 5, -10000, -1, 91, 10, 20, 91, 91, 0);
+
+        String[] names = {"p1546.CurveInterpolation", "p1546.MixedPath", "p1546.Troposcatter", "p1546.ReceiverHeight",
+                "p1546.ShortPath"};
+        Path file = Files.createTempFile("p1546", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                for (String name : names) {
+                    recording.enable(name).withoutThreshold();
+                }
+                recording.start();
+                Assert.assertEquals(L1, calculator.P1546FieldStrMixed(900, 20, 150, 1.5, 15, P1546.ClutterEnvironment.URBAN,
+                        mixed, 1, 90, 1, 40, 150, 10, 2.5, 100, 50, -1.5, 0.5, 5.5), 0);
+                Assert.assertEquals(L2, calculator.P1546FieldStrMixed(600, 10, 5, 10, 15, P1546.ClutterEnvironment.SUBURBAN,
+                        shortPath, 0, 50, 1, 5, -10000, -1, 91, 10, 20, 91, 91, 0), 0);
+                recording.stop();
+                recording.dump(file);
+            }
+
+            Map<String, Integer> count = new HashMap<String, Integer>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                String name = event.getEventType().getName();
+                count.merge(name, 1, Integer::sum);
+                if (name.equals("p1546.CurveInterpolation") && event.getInt("zones") == 3) {
+                    Assert.assertEquals(900, event.getDouble("f"), 0);
+                    Assert.assertEquals(20, event.getDouble("t"), 0);
+                    Assert.assertEquals(67.5, event.getDouble("d"), 1e-12);
+                    Assert.assertEquals(2, event.getInt("types"));
+                } else if (name.equals("p1546.MixedPath") && event.getInt("ns") == 1) {
+                    Assert.assertEquals(2, event.getInt("nl"));
+                    Assert.assertEquals(32, event.getDouble("dland"), 1e-12);
+                    Assert.assertEquals(35.5, event.getDouble("dsea"), 1e-12);
+                } else if (name.equals("p1546.Troposcatter")) {
+                    Assert.assertEquals(-1.5, event.getDouble("eff1"), 0);
+                    Assert.assertEquals(0.5, event.getDouble("eff2"), 0);
+                } else if (name.equals("p1546.ReceiverHeight") && event.getDouble("h2") == 10) {
+                    Assert.assertEquals("SUBURBAN", event.getString("area"));
+                    Assert.assertEquals(1, event.getDouble("d"), 0);
+                } else if (name.equals("p1546.ShortPath")) {
+                    Assert.assertEquals(0.5, event.getDouble("d"), 0);
+                    Assert.assertTrue(event.getDouble("E") != event.getDouble("E1"));
+                }
+            }
+            Assert.assertEquals(Integer.valueOf(2), count.get("p1546.CurveInterpolation"));
+            Assert.assertEquals(Integer.valueOf(2), count.get("p1546.MixedPath"));
+            Assert.assertEquals(Integer.valueOf(1), count.get("p1546.Troposcatter"));
+            Assert.assertEquals(Integer.valueOf(2), count.get("p1546.ReceiverHeight"));
+            Assert.assertEquals(Integer.valueOf(1), count.get("p1546.ShortPath"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void test41() throws IOException {
+        // The site index derives hb from the terrain for each victim closer
+        // than 15 km to a site with terrain information, and uses it as heff
+        // (h1 = hb, equ'n (6)); the other sites keep their heff
+
+        Path dir = Files.createTempDirectory("p1546");
+        Path hgt = dir.resolve("N46E007.hgt");
+        try {
+            int n = 1201;
+            ByteBuffer buf = ByteBuffer.allocate(2 * n * n).order(ByteOrder.BIG_ENDIAN);
+            for (int row = 0; row < n; row++) {
+                for (int col = 0; col < n; col++) {
+                    buf.putShort((short) (400 + 250 * Math.sin(row / 37.0) * Math.cos(col / 53.0)));
+                }
+            }
+            Files.write(hgt, buf.array());
+            P1546Terrain terrain = P1546Terrain.openHgt(hgt);
+
+            double step = 0.1;
+            double[] lon = {7.45, 7.52, 7.6, 7.9};
+            int[] pathinfo = {1, 1, 0, 1};
+            P1546SiteIndex.Site[] sites = new P1546SiteIndex.Site[lon.length];
+            for (int i = 0; i < lon.length; i++) {
+                sites[i] = new P1546SiteIndex.Site(46.5, lon[i], 600, 50, 150, pathinfo[i], 50, 1, 40, -1, 0, 0);
+            }
+            P1546 calculator = new P1546();
+            P1546SiteIndex index = new P1546SiteIndex(calculator, sites, null, terrain, step);
+            int[] out = new int[lon.length];
+            double[] Lb = new double[lon.length];
+            double vlat = 46.55;
+            double vlon = 7.5;
+            Assert.assertEquals(lon.length, index.evaluate(vlat, vlon, 10, 10, P1546.ClutterEnvironment.RURAL, 0, -1000, out, Lb));
+
+            int short15 = 0;
+            for (int k = 0; k < lon.length; k++) {
+                int i = out[k];
+                double d = GreatCircle.distance(46.5, lon[i], vlat, vlon);
+                double heff = 150;
+                double hb = -10000;
+                if (pathinfo[i] == 1 && d < 15) {
+                    hb = terrain.inputs(46.5, lon[i], 40, vlat, vlon, 10, step).getHb();
+                    Assert.assertNotEquals(heff, hb, 1);
+                    heff = hb;
+                    short15 = short15 + 1;
+                }
+                P1546.PathZones path = new P1546.PathZones(new double[]{d}, new String[]{"Land"});
+                double L = calculator.P1546FieldStrMixed(600, 50, heff, 10, 10, P1546.ClutterEnvironment.RURAL, path,
+                        pathinfo[i], 50, 1, 40, hb, -1, 91, 0, 0, 91, 91, 0);
+                Assert.assertEquals(L, Lb[k], 0);
+            }
+            Assert.assertEquals(2, short15);
+        } finally {
+            Files.deleteIfExists(hgt);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package test;
+
+import main.P1546;
+
+import java.util.Random;
+
+public class RandomLinks {
+    // n random links in the layout of P1546FieldStrMixedBatch, with up to
+    // three path zones each. Without invalid rows, all the inputs are within
+    // the limits of P1546FieldStrMixed; with them, some of the links get an
+    // f, t, heff, d, h2, ha or q out of range, no path zones or an invalid
+    // zone code (rates of 1/100 to 1/5 per input)
+
+    public final int n;
+    public final double[] f;
+    public final double[] t;
+    public final double[] heff;
+    public final double[] h2;
+    public final double[] R2;
+    public final P1546.ClutterEnvironment[] area;
+    public final int[] pathinfo;
+    public final double[] q;
+    public final double[] PTx;
+    public final double[] ha;
+    public final double[] hb;
+    public final double[] R1;
+    public final double[] tca;
+    public final double[] htter;
+    public final double[] hrter;
+    public final double[] eff1;
+    public final double[] eff2;
+    public final double[] sigmaL;
+    public final double[] d_all;
+    public final byte[] zone_v;
+    public final int[] zone_x;
+
+    public RandomLinks(long seed, int n, boolean invalid) {
+        Random random = new Random(seed);
+        P1546.ClutterEnvironment[] areas = invalid
+                ? new P1546.ClutterEnvironment[]{P1546.ClutterEnvironment.RURAL, P1546.ClutterEnvironment.SUBURBAN,
+                P1546.ClutterEnvironment.URBAN, P1546.ClutterEnvironment.DENSE_URBAN, P1546.ClutterEnvironment.WATER,
+                P1546.ClutterEnvironment.NONE, null}
+                : new P1546.ClutterEnvironment[]{P1546.ClutterEnvironment.RURAL, P1546.ClutterEnvironment.SUBURBAN,
+                P1546.ClutterEnvironment.URBAN, P1546.ClutterEnvironment.DENSE_URBAN, P1546.ClutterEnvironment.WATER};
+
+        this.n = n;
+        f = new double[n];
+        t = new double[n];
+        heff = new double[n];
+        h2 = new double[n];
+        R2 = new double[n];
+        area = new P1546.ClutterEnvironment[n];
+        pathinfo = new int[n];
+        q = new double[n];
+        PTx = new double[n];
+        ha = new double[n];
+        hb = new double[n];
+        R1 = new double[n];
+        tca = new double[n];
+        htter = new double[n];
+        hrter = new double[n];
+        eff1 = new double[n];
+        eff2 = new double[n];
+        sigmaL = new double[n];
+        zone_x = new int[n + 1];
+        d_all = new double[3 * n];
+        zone_v = new byte[3 * n];
+        for (int i = 0; i < n; i++) {
+            f[i] = invalid && random.nextInt(40) == 0 ? 20 : 30 * Math.pow(100, random.nextDouble());
+            t[i] = invalid && random.nextInt(40) == 0 ? 60 : 1 + 49 * random.nextDouble();
+            heff[i] = invalid && random.nextInt(10) == 0 ? -5 * random.nextDouble()
+                    : 5 + 1500 * random.nextDouble() * random.nextDouble();
+            h2[i] = invalid && random.nextInt(5) == 0 ? 0.5 + 2 * random.nextDouble() : 3 + 30 * random.nextDouble();
+            R2[i] = 10 * random.nextInt(3);
+            area[i] = areas[random.nextInt(areas.length)];
+            pathinfo[i] = random.nextInt(2);
+            q[i] = invalid && random.nextInt(40) == 0 ? 99.5 : random.nextBoolean() ? 50 : 1 + 98 * random.nextDouble();
+            PTx[i] = Math.pow(10, 4 * random.nextDouble() - 2);
+            ha[i] = invalid && random.nextInt(10) == 0 ? 0.5 * random.nextDouble() : 5 + 300 * random.nextDouble();
+            hb[i] = random.nextBoolean() ? -10000 : heff[i];
+            R1[i] = random.nextBoolean() ? -1 : 10 + 20 * random.nextDouble();
+            tca[i] = random.nextBoolean() ? 91 : 0.55 + 10 * random.nextDouble();
+            htter[i] = 500 * random.nextDouble();
+            hrter[i] = 500 * random.nextDouble();
+            eff1[i] = random.nextBoolean() ? 91 : 10 * random.nextDouble() - 5;
+            eff2[i] = random.nextBoolean() ? 91 : 10 * random.nextDouble() - 5;
+            sigmaL[i] = 8 * random.nextDouble();
+
+            double d = invalid && random.nextInt(40) == 0 ? -1 : 0.1 * Math.pow(15000, random.nextDouble());
+            int NN = invalid && random.nextInt(100) == 0 ? 0 : 1 + random.nextInt(3);
+            for (int j = 0; j < NN; j++) {
+                d_all[zone_x[i] + j] = d / NN;
+                zone_v[zone_x[i] + j] = invalid && random.nextInt(100) == 0 ? 4 : P1546.Zone.values()[random.nextInt(3)].code();
+            }
+            zone_x[i + 1] = zone_x[i] + NN;
+        }
+    }
+
+    public P1546.PathZones path(int i) {
+        // path zones of link i; throws for a link without path zones or with
+        // an invalid zone code
+        int NN = zone_x[i + 1] - zone_x[i];
+        double[] d_v = new double[NN];
+        P1546.Zone[] zones = new P1546.Zone[NN];
+        for (int j = 0; j < NN; j++) {
+            d_v[j] = d_all[zone_x[i] + j];
+            zones[j] = P1546.Zone.fromCode(zone_v[zone_x[i] + j]);
+        }
+        return new P1546.PathZones(d_v, zones);
+    }
+
+    public P1546.Result result(P1546 calculator, int i, P1546.Workspace ws) {
+        // P1546FieldStrMixedResult of link i
+        return calculator.P1546FieldStrMixedResult(f[i], t[i], heff[i], h2[i], R2[i], area[i], path(i), pathinfo[i],
+                q[i], PTx[i], ha[i], hb[i], R1[i], tca[i], htter[i], hrter[i], eff1[i], eff2[i], sigmaL[i], null, ws);
+    }
+
+    public double bound(P1546 calculator, int i, P1546.Workspace ws) {
+        // P1546FieldStrMixedBound of link i
+        return calculator.P1546FieldStrMixedBound(f[i], t[i], heff[i], h2[i], R2[i], area[i], path(i), pathinfo[i],
+                q[i], PTx[i], ha[i], hb[i], R1[i], tca[i], htter[i], hrter[i], eff1[i], eff2[i], sigmaL[i], ws);
+    }
+
+    public void batch(P1546 calculator, double[] Lb) {
+        calculator.P1546FieldStrMixedBatch(f, t, heff, h2, R2, area, d_all, zone_v, zone_x, pathinfo,
+                q, PTx, ha, hb, R1, tca, htter, hrter, eff1, eff2, sigmaL, Lb);
+    }
+
+    public int culled(P1546 calculator, double Emin, double[] Lb) {
+        return calculator.P1546FieldStrMixedBatchCulled(Emin, f, t, heff, h2, R2, area, d_all, zone_v, zone_x, pathinfo,
+                q, PTx, ha, hb, R1, tca, htter, hrter, eff1, eff2, sigmaL, Lb);
+    }
+
+    public int checked(P1546 calculator, double[] Lb, byte[] status) {
+        return calculator.P1546FieldStrMixedBatchChecked(f, t, heff, h2, R2, area, d_all, zone_v, zone_x, pathinfo,
+                q, PTx, ha, hb, R1, tca, htter, hrter, eff1, eff2, sigmaL, Lb, status);
+    }
+
+    public int validate(P1546 calculator, byte[] status) {
+        return calculator.P1546FieldStrMixedValidate(f, t, heff, h2, area, d_all, zone_v, zone_x, pathinfo, q, ha, hb, status);
+    }
+}